@@ -0,0 +1,88 @@
+package com.project.back_end.DTO;
+
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+// Opaque cursor for keyset pagination of appointment listings ordered by (appointmentTime, id).
+// The cursor holds the sort keys of the last appointment of a page, e.g. "2025-06-01T09:00_42" in base64url,
+// so the next page starts right after it with an index range scan instead of an OFFSET.
+public final class AppointmentCursor {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Comparator<AppointmentDTO> ORDER =
+            Comparator.comparing(AppointmentDTO::getAppointmentTime).thenComparing(AppointmentDTO::getId);
+
+    // Sort keys of the appointment a page continues after
+    public record Position(LocalDateTime time, long id) {
+    }
+
+    // Sorts before every appointment (and within the MySQL DATETIME range)
+    public static final Position FIRST = new Position(LocalDateTime.of(1000, 1, 1, 0, 0), 0);
+
+    private AppointmentCursor() {
+    }
+
+    // Decodes a cursor into the position to continue from; null or empty means the first page
+    public static Position decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('_');
+            return new Position(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    // Clamps a requested page size to [1, MAX_PAGE_SIZE]
+    public static int pageSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+
+    // Rows to fetch for a page: one more than the page size, to tell whether another page follows
+    public static Limit limit(int size) {
+        return Limit.of(pageSize(size) + 1);
+    }
+
+    // Returns the page out of rows fetched with limit(size)
+    public static List<AppointmentDTO> page(List<AppointmentDTO> rows, int size) {
+        return rows.size() > pageSize(size) ? rows.subList(0, pageSize(size)) : rows;
+    }
+
+    // Returns the cursor of the page following rows fetched with limit(size), or null if it is the last page
+    public static String next(List<AppointmentDTO> rows, int size) {
+        if (rows.size() <= pageSize(size)) {
+            return null;
+        }
+        AppointmentDTO last = rows.get(pageSize(size) - 1);
+        String value = last.getAppointmentTime() + "_" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Merges two listings ordered by (appointmentTime, id), such as rows of the appointment table and of the archive
+    // fetched with the same limit; page() and next() apply to the result unchanged
+    public static List<AppointmentDTO> merge(List<AppointmentDTO> first, List<AppointmentDTO> second) {
+        if (second.isEmpty()) {
+            return first;
+        }
+        if (first.isEmpty()) {
+            return second;
+        }
+        List<AppointmentDTO> merged = new ArrayList<>(first.size() + second.size());
+        merged.addAll(first);
+        merged.addAll(second);
+        merged.sort(ORDER);
+        return merged;
+    }
+}
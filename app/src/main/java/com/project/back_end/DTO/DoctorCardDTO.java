@@ -0,0 +1,46 @@
+package com.project.back_end.DTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DoctorCardDTO {
+
+    // Represents the unique identifier for the doctor
+    private Long id;
+
+    // Represents the details shown on the doctor card
+    private String name;
+    private String specialty;
+    private String email;
+
+    // Represents the doctor's time slots, e.g. "09:00-10:00"
+    private List<String> availability = new ArrayList<>();
+
+    public DoctorCardDTO(Long id, String name, String specialty, String email) {
+        this.id = id;
+        this.name = name;
+        this.specialty = specialty;
+        this.email = email;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSpecialty() {
+        return specialty;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public List<String> getAvailability() {
+        return availability;
+    }
+}
@@ -0,0 +1,32 @@
+package com.project.back_end.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+// Puts a ConnectionGate with one permit per pooled connection in front of the Hikari pool; turned off with
+// db.connection-gate.enabled=false. Test databases that are not Hikari pools are left as they are.
+@Configuration
+@ConditionalOnProperty(name = "db.connection-gate.enabled", matchIfMissing = true)
+public class ConnectionGateConfig {
+
+    @Bean
+    static BeanPostProcessor connectionGatePostProcessor(Environment environment) {
+        // read from the environment: post-processors are created before @Value placeholders are resolved
+        Duration waitTimeout = Duration.parse(environment.getProperty("db.connection-gate.timeout", "PT30S"));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource pool) {
+                    return new ConnectionGate(pool, pool.getMaximumPoolSize(), waitTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.project.back_end.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Runs the @Scheduled background jobs; turned off with app.scheduling.enabled=false
+// (e.g. in tests that count SQL statements)
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "app.scheduling.enabled", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -1,27 +1,62 @@
-
 package com.project.back_end.controllers;
 
+import com.project.back_end.models.Admin;
+import com.project.back_end.services.ExportService;
+import com.project.back_end.services.Service;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("${api.path}admin")
 public class AdminController {
 
-// 1. Set Up the Controller Class:
-//    - Annotate the class with `@RestController` to indicate that it's a REST controller, used to handle web requests and return JSON responses.
-//    - Use `@RequestMapping("${api.path}admin")` to define a base path for all endpoints in this controller.
-//    - This allows the use of an external property (`api.path`) for flexible configuration of endpoint paths.
-
-
-// 2. Autowire Service Dependency:
-//    - Use constructor injection to autowire the `Service` class.
-//    - The service handles core logic related to admin validation and token checking.
-//    - This promotes cleaner code and separation of concerns between the controller and business logic layer.
-
-
-// 3. Define the `adminLogin` Method:
-//    - Handles HTTP POST requests for admin login functionality.
-//    - Accepts an `Admin` object in the request body, which contains login credentials.
-//    - Delegates authentication logic to the `validateAdmin` method in the service layer.
-//    - Returns a `ResponseEntity` with a `Map` containing login status or messages.
-
-
+    private final Service service;
+    private final ExportService exportService;
+
+    public AdminController(Service service, ExportService exportService) {
+        this.service = service;
+        this.exportService = exportService;
+    }
+
+    // Admin login, the request thread is released while the password is verified
+    @PostMapping
+    public CompletableFuture<ResponseEntity<Map<String, String>>> adminLogin(@RequestBody Admin admin) {
+        return service.validateAdmin(admin);
+    }
+
+    // Streams the appointment history as ndjson or csv, optionally limited to appointments from/to the given dates
+    @GetMapping("/export/appointments/{token}")
+    public ResponseEntity<StreamingResponseBody> exportAppointments(@PathVariable String token,
+                                                                    @RequestParam(defaultValue = "ndjson") String format,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (!service.validateToken(token, "admin").getBody().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return exportService.exportAppointments(format, from, to);
+    }
+
+    // Streams every prescription as ndjson or csv
+    @GetMapping("/export/prescriptions/{token}")
+    public ResponseEntity<StreamingResponseBody> exportPrescriptions(@PathVariable String token,
+                                                                     @RequestParam(defaultValue = "ndjson") String format) {
+        if (!service.validateToken(token, "admin").getBody().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return exportService.exportPrescriptions(format);
+    }
 
 }
-
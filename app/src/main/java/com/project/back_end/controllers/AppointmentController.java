@@ -1,48 +1,138 @@
 package com.project.back_end.controllers;
 
+import com.project.back_end.models.Appointment;
+import com.project.back_end.services.AppointmentService;
+import com.project.back_end.services.Service;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-public class AppointmentController {
-
-// 1. Set Up the Controller Class:
-//    - Annotate the class with `@RestController` to define it as a REST API controller.
-//    - Use `@RequestMapping("/appointments")` to set a base path for all appointment-related endpoints.
-//    - This centralizes all routes that deal with booking, updating, retrieving, and canceling appointments.
-
-
-// 2. Autowire Dependencies:
-//    - Inject `AppointmentService` for handling the business logic specific to appointments.
-//    - Inject the general `Service` class, which provides shared functionality like token validation and appointment checks.
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+@RestController
+@RequestMapping("/appointments")
+public class AppointmentController {
 
-// 3. Define the `getAppointments` Method:
-//    - Handles HTTP GET requests to fetch appointments based on date and patient name.
-//    - Takes the appointment date, patient name, and token as path variables.
-//    - First validates the token for role `"doctor"` using the `Service`.
-//    - If the token is valid, returns appointments for the given patient on the specified date.
-//    - If the token is invalid or expired, responds with the appropriate message and status code.
+    private final AppointmentService appointmentService;
+    private final Service service;
 
+    public AppointmentController(AppointmentService appointmentService, Service service) {
+        this.appointmentService = appointmentService;
+        this.service = service;
+    }
 
-// 4. Define the `bookAppointment` Method:
-//    - Handles HTTP POST requests to create a new appointment.
-//    - Accepts a validated `Appointment` object in the request body and a token as a path variable.
-//    - Validates the token for the `"patient"` role.
-//    - Uses service logic to validate the appointment data (e.g., check for doctor availability and time conflicts).
-//    - Returns success if booked, or appropriate error messages if the doctor ID is invalid or the slot is already taken.
+    // Returns one page of the doctor's appointments on a date, optionally filtered by patient name;
+    // pass the returned nextCursor as cursor to get the following page
+    @GetMapping("/{date}/{patientName}/{token}")
+    public ResponseEntity<?> getAppointments(@PathVariable String date,
+                                             @PathVariable String patientName,
+                                             @PathVariable String token,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "20") int size) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "doctor");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return tokenCheck;
+        }
+        return appointmentService.getAppointments(patientName, LocalDate.parse(date), token, cursor, size);
+    }
 
+    // Streams the changes of the doctor's appointments on a date as server-sent events (booked, updated, cancelled,
+    // prescription-added, and resync when the dashboard should reload the day), so the dashboard does not poll
+    @GetMapping("/events/{date}/{token}")
+    public ResponseEntity<SseEmitter> streamScheduleEvents(@PathVariable String date, @PathVariable String token) {
+        if (!service.validateToken(token, "doctor").getBody().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return appointmentService.subscribeToSchedule(LocalDate.parse(date), token);
+    }
 
-// 5. Define the `updateAppointment` Method:
-//    - Handles HTTP PUT requests to modify an existing appointment.
-//    - Accepts a validated `Appointment` object and a token as input.
-//    - Validates the token for `"patient"` role.
-//    - Delegates the update logic to the `AppointmentService`.
-//    - Returns an appropriate success or failure response based on the update result.
+    // Books a new appointment for the patient the token was issued to
+    @PostMapping("/{token}")
+    public ResponseEntity<Map<String, String>> bookAppointment(@RequestBody @Valid Appointment appointment,
+                                                               @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "patient");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return tokenCheck;
+        }
+        Map<String, String> response = new HashMap<>();
+        if (!appointmentService.isForTokenPatient(appointment, token)) {
+            response.put("message", "Unauthorized to book an appointment for another patient");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        int validation = service.validateAppointment(appointment);
+        if (validation == -1) {
+            response.put("message", "Invalid doctor id");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        if (validation == 0) {
+            response.put("message", "Appointment already booked for given time or doctor not available");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        int booking = appointmentService.bookAppointment(appointment);
+        if (booking == 1) {
+            response.put("message", "Appointment Booked");
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        }
+        if (booking == -1) {
+            response.put("message", "Appointment already booked for given time or doctor not available");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        response.put("message", "Internal server error");
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
 
+    // Books a list of appointments in one request, admin only (front desk and integration jobs).
+    // Returns 200 with one result per item, in request order; each result carries its own status code.
+    @PostMapping("/batch/{token}")
+    public ResponseEntity<Map<String, Object>> bookAppointments(@RequestBody List<Appointment> appointments,
+                                                                @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "admin");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return ResponseEntity.status(tokenCheck.getStatusCode()).body(new HashMap<>(tokenCheck.getBody()));
+        }
+        Map<String, Object> response = new HashMap<>();
+        if (appointments.isEmpty() || appointments.size() > AppointmentService.MAX_BATCH_SIZE) {
+            response.put("message", "A batch must contain between 1 and " + AppointmentService.MAX_BATCH_SIZE + " appointments");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        List<Map<String, Object>> results = appointmentService.bookAppointments(appointments);
+        response.put("results", results);
+        response.put("booked", results.stream().filter(result -> (int) result.get("status") == HttpStatus.CREATED.value()).count());
+        return ResponseEntity.ok(response);
+    }
 
-// 6. Define the `cancelAppointment` Method:
-//    - Handles HTTP DELETE requests to cancel a specific appointment.
-//    - Accepts the appointment ID and a token as path variables.
-//    - Validates the token for `"patient"` role to ensure the user is authorized to cancel the appointment.
-//    - Calls `AppointmentService` to handle the cancellation process and returns the result.
+    // Moves an existing appointment of the patient
+    @PutMapping("/{token}")
+    public ResponseEntity<Map<String, String>> updateAppointment(@RequestBody @Valid Appointment appointment,
+                                                                 @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "patient");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return tokenCheck;
+        }
+        return appointmentService.updateAppointment(appointment, token);
+    }
 
+    // Cancels an appointment of the patient
+    @DeleteMapping("/{id}/{token}")
+    public ResponseEntity<Map<String, String>> cancelAppointment(@PathVariable long id, @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "patient");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return tokenCheck;
+        }
+        return appointmentService.cancelAppointment(id, token);
+    }
 
 }
@@ -1,61 +1,172 @@
 package com.project.back_end.controllers;
 
-
+import com.project.back_end.DTO.Login;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.services.DoctorDirectory;
+import com.project.back_end.services.DoctorService;
+import com.project.back_end.services.Service;
+import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("${api.path}doctor")
 public class DoctorController {
 
-// 1. Set Up the Controller Class:
-//    - Annotate the class with `@RestController` to define it as a REST controller that serves JSON responses.
-//    - Use `@RequestMapping("${api.path}doctor")` to prefix all endpoints with a configurable API path followed by "doctor".
-//    - This class manages doctor-related functionalities such as registration, login, updates, and availability.
-
-
-// 2. Autowire Dependencies:
-//    - Inject `DoctorService` for handling the core logic related to doctors (e.g., CRUD operations, authentication).
-//    - Inject the shared `Service` class for general-purpose features like token validation and filtering.
-
-
-// 3. Define the `getDoctorAvailability` Method:
-//    - Handles HTTP GET requests to check a specific doctor’s availability on a given date.
-//    - Requires `user` type, `doctorId`, `date`, and `token` as path variables.
-//    - First validates the token against the user type.
-//    - If the token is invalid, returns an error response; otherwise, returns the availability status for the doctor.
-
-
-// 4. Define the `getDoctor` Method:
-//    - Handles HTTP GET requests to retrieve a list of all doctors.
-//    - Returns the list within a response map under the key `"doctors"` with HTTP 200 OK status.
-
-
-// 5. Define the `saveDoctor` Method:
-//    - Handles HTTP POST requests to register a new doctor.
-//    - Accepts a validated `Doctor` object in the request body and a token for authorization.
-//    - Validates the token for the `"admin"` role before proceeding.
-//    - If the doctor already exists, returns a conflict response; otherwise, adds the doctor and returns a success message.
-
-
-// 6. Define the `doctorLogin` Method:
-//    - Handles HTTP POST requests for doctor login.
-//    - Accepts a validated `Login` DTO containing credentials.
-//    - Delegates authentication to the `DoctorService` and returns login status and token information.
-
-
-// 7. Define the `updateDoctor` Method:
-//    - Handles HTTP PUT requests to update an existing doctor's information.
-//    - Accepts a validated `Doctor` object and a token for authorization.
-//    - Token must belong to an `"admin"`.
-//    - If the doctor exists, updates the record and returns success; otherwise, returns not found or error messages.
-
-
-// 8. Define the `deleteDoctor` Method:
-//    - Handles HTTP DELETE requests to remove a doctor by ID.
-//    - Requires both doctor ID and an admin token as path variables.
-//    - If the doctor exists, deletes the record and returns a success message; otherwise, responds with a not found or error message.
-
-
-// 9. Define the `filter` Method:
-//    - Handles HTTP GET requests to filter doctors based on name, time, and specialty.
-//    - Accepts `name`, `time`, and `speciality` as path variables.
-//    - Calls the shared `Service` to perform filtering logic and returns matching doctors in the response.
-
+    private final DoctorService doctorService;
+    private final Service service;
+
+    public DoctorController(DoctorService doctorService, Service service) {
+        this.doctorService = doctorService;
+        this.service = service;
+    }
+
+    // Returns the free slots of a doctor on a given date
+    @GetMapping("/availability/{user}/{doctorId}/{date}/{token}")
+    public ResponseEntity<Map<String, Object>> getDoctorAvailability(@PathVariable String user,
+                                                                     @PathVariable Long doctorId,
+                                                                     @PathVariable String date,
+                                                                     @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, user);
+        if (!tokenCheck.getBody().isEmpty()) {
+            return ResponseEntity.status(tokenCheck.getStatusCode()).body(new HashMap<>(tokenCheck.getBody()));
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("availability", doctorService.getDoctorAvailability(doctorId, LocalDate.parse(date)));
+        return ResponseEntity.ok(response);
+    }
+
+    // Returns every doctor from the cached directory snapshot; clients revalidate it with If-None-Match
+    @GetMapping
+    public ResponseEntity<byte[]> getDoctor() {
+        DoctorDirectory.Snapshot directory = doctorService.getDoctorDirectory();
+        // Spring answers 304 Not Modified itself when If-None-Match matches the ETag
+        return ResponseEntity.ok()
+                .eTag(directory.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(directory.json());
+    }
+
+    // Registers a new doctor, admin only
+    @PostMapping("/{token}")
+    public ResponseEntity<Map<String, String>> saveDoctor(@RequestBody @Valid Doctor doctor, @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "admin");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return tokenCheck;
+        }
+        Map<String, String> response = new HashMap<>();
+        int result = doctorService.saveDoctor(doctor);
+        if (result == -2) {
+            response.put("message", "Too many requests, please try again shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+        }
+        if (result == -1) {
+            response.put("message", "Doctor already exists");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        if (result == 0) {
+            response.put("message", "Some internal error occurred");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+        response.put("message", "Doctor added to db");
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    // Doctor login, the request thread is released while the password is verified
+    @PostMapping("/login")
+    public CompletableFuture<ResponseEntity<Map<String, String>>> doctorLogin(@RequestBody Login login) {
+        return doctorService.validateDoctor(login);
+    }
+
+    // Updates an existing doctor, admin only
+    @PutMapping("/{token}")
+    public ResponseEntity<Map<String, String>> updateDoctor(@RequestBody @Valid Doctor doctor, @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "admin");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return tokenCheck;
+        }
+        Map<String, String> response = new HashMap<>();
+        int result = doctorService.updateDoctor(doctor);
+        if (result == -2) {
+            response.put("message", "Too many requests, please try again shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+        }
+        if (result == -1) {
+            response.put("message", "Doctor not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        if (result == 0) {
+            response.put("message", "Some internal error occurred");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+        response.put("message", "Doctor updated");
+        return ResponseEntity.ok(response);
+    }
+
+    // Deletes a doctor, admin only; their appointments are purged in the background (see /doctor/purge), and
+    // deleting the doctor again retries a purge that failed
+    @DeleteMapping("/{id}/{token}")
+    public ResponseEntity<Map<String, String>> deleteDoctor(@PathVariable long id, @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "admin");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return tokenCheck;
+        }
+        Map<String, String> response = new HashMap<>();
+        int result = doctorService.deleteDoctor(id);
+        if (result == -1) {
+            response.put("message", "Doctor not found with id " + id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        if (result == 0) {
+            response.put("message", "Some internal error occurred");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+        response.put("message", "Doctor deleted, appointments are being purged");
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    // Returns the progress of the background purge of a deleted doctor, admin only
+    @GetMapping("/purge/{id}/{token}")
+    public ResponseEntity<Map<String, Object>> getPurgeProgress(@PathVariable long id, @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "admin");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return ResponseEntity.status(tokenCheck.getStatusCode()).body(new HashMap<>(tokenCheck.getBody()));
+        }
+        Map<String, Object> progress = doctorService.getPurgeProgress(id);
+        if (progress == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "No purge found for doctor " + id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        return ResponseEntity.ok(progress);
+    }
+
+    // Filters doctors by name, AM/PM availability and specialty, one page of doctor cards at a time
+    @GetMapping("/filter/{name}/{time}/{speciality}")
+    public ResponseEntity<Map<String, Object>> filter(@PathVariable String name,
+                                                      @PathVariable String time,
+                                                      @PathVariable String speciality,
+                                                      @RequestParam(defaultValue = "0") int page,
+                                                      @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(service.filterDoctor(name, speciality, time, page, size));
+    }
 
 }
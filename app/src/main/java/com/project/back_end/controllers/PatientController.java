@@ -1,52 +1,120 @@
 package com.project.back_end.controllers;
 
+import com.project.back_end.DTO.Login;
+import com.project.back_end.models.Patient;
+import com.project.back_end.services.PatientRecordService;
+import com.project.back_end.services.PatientService;
+import com.project.back_end.services.Service;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/patient")
 public class PatientController {
 
-// 1. Set Up the Controller Class:
-//    - Annotate the class with `@RestController` to define it as a REST API controller for patient-related operations.
-//    - Use `@RequestMapping("/patient")` to prefix all endpoints with `/patient`, grouping all patient functionalities under a common route.
-
-
-// 2. Autowire Dependencies:
-//    - Inject `PatientService` to handle patient-specific logic such as creation, retrieval, and appointments.
-//    - Inject the shared `Service` class for tasks like token validation and login authentication.
-
-
-// 3. Define the `getPatient` Method:
-//    - Handles HTTP GET requests to retrieve patient details using a token.
-//    - Validates the token for the `"patient"` role using the shared service.
-//    - If the token is valid, returns patient information; otherwise, returns an appropriate error message.
-
-
-// 4. Define the `createPatient` Method:
-//    - Handles HTTP POST requests for patient registration.
-//    - Accepts a validated `Patient` object in the request body.
-//    - First checks if the patient already exists using the shared service.
-//    - If validation passes, attempts to create the patient and returns success or error messages based on the outcome.
-
-
-// 5. Define the `login` Method:
-//    - Handles HTTP POST requests for patient login.
-//    - Accepts a `Login` DTO containing email/username and password.
-//    - Delegates authentication to the `validatePatientLogin` method in the shared service.
-//    - Returns a response with a token or an error message depending on login success.
-
-
-// 6. Define the `getPatientAppointment` Method:
-//    - Handles HTTP GET requests to fetch appointment details for a specific patient.
-//    - Requires the patient ID, token, and user role as path variables.
-//    - Validates the token using the shared service.
-//    - If valid, retrieves the patient's appointment data from `PatientService`; otherwise, returns a validation error.
-
-
-// 7. Define the `filterPatientAppointment` Method:
-//    - Handles HTTP GET requests to filter a patient's appointments based on specific conditions.
-//    - Accepts filtering parameters: `condition`, `name`, and a token.
-//    - Token must be valid for a `"patient"` role.
-//    - If valid, delegates filtering logic to the shared service and returns the filtered result.
-
-
+    private final PatientService patientService;
+    private final PatientRecordService patientRecordService;
+    private final Service service;
+
+    public PatientController(PatientService patientService, PatientRecordService patientRecordService, Service service) {
+        this.patientService = patientService;
+        this.patientRecordService = patientRecordService;
+        this.service = service;
+    }
+
+    // Returns the details of the patient the token was issued to
+    @GetMapping("/{token}")
+    public ResponseEntity<?> getPatient(@PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "patient");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return tokenCheck;
+        }
+        return patientService.getPatientDetails(token);
+    }
+
+    // Registers a new patient
+    @PostMapping
+    public ResponseEntity<Map<String, String>> createPatient(@RequestBody @Valid Patient patient) {
+        Map<String, String> response = new HashMap<>();
+        if (!service.validatePatient(patient)) {
+            response.put("message", "Patient with email id or phone no already exist");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        int result = patientService.createPatient(patient);
+        if (result == 1) {
+            response.put("message", "Signup successful");
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        }
+        if (result == -2) {
+            response.put("message", "Too many requests, please try again shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+        }
+        response.put("message", "Internal server error");
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+
+    // Patient login, the request thread is released while the password is verified
+    @PostMapping("/login")
+    public CompletableFuture<ResponseEntity<Map<String, String>>> login(@RequestBody Login login) {
+        return service.validatePatientLogin(login);
+    }
+
+    // Returns one page of a patient's appointments, for the patient themselves or for a doctor;
+    // pass the returned nextCursor as cursor to get the following page
+    @GetMapping("/{id}/{user}/{token}")
+    public ResponseEntity<?> getPatientAppointment(@PathVariable Long id,
+                                                   @PathVariable String user,
+                                                   @PathVariable String token,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "20") int size) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, user);
+        if (!tokenCheck.getBody().isEmpty()) {
+            return tokenCheck;
+        }
+        return patientService.getPatientAppointment(id, token, cursor, size);
+    }
+
+    // Returns one page of the patient record: each appointment with its prescription summary, read from both stores
+    // in one call; partial is true when the prescriptions could not be read in time
+    @GetMapping("/record/{id}/{user}/{token}")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getPatientRecord(@PathVariable Long id,
+                                                                                   @PathVariable String user,
+                                                                                   @PathVariable String token,
+                                                                                   @RequestParam(required = false) String cursor,
+                                                                                   @RequestParam(defaultValue = "20") int size) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, user);
+        if (!tokenCheck.getBody().isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(tokenCheck.getStatusCode()).body(new HashMap<>(tokenCheck.getBody())));
+        }
+        return patientRecordService.getPatientRecord(id, token, cursor, size);
+    }
+
+    // Filters the patient's appointments by condition (past/future) and doctor name
+    @GetMapping("/filter/{condition}/{name}/{token}")
+    public ResponseEntity<?> filterPatientAppointment(@PathVariable String condition,
+                                                      @PathVariable String name,
+                                                      @PathVariable String token,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "20") int size) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "patient");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return tokenCheck;
+        }
+        return service.filterPatient(condition, name, token, cursor, size);
+    }
 
 }
-
-
@@ -1,33 +1,87 @@
 package com.project.back_end.controllers;
 
-public class PrescriptionController {
-    
-// 1. Set Up the Controller Class:
-//    - Annotate the class with `@RestController` to define it as a REST API controller.
-//    - Use `@RequestMapping("${api.path}prescription")` to set the base path for all prescription-related endpoints.
-//    - This controller manages creating and retrieving prescriptions tied to appointments.
+import com.project.back_end.models.Appointment.AppointmentStatus;
+import com.project.back_end.models.Prescription;
+import com.project.back_end.services.AppointmentService;
+import com.project.back_end.services.PrescriptionService;
+import com.project.back_end.services.Service;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
-// 2. Autowire Dependencies:
-//    - Inject `PrescriptionService` to handle logic related to saving and fetching prescriptions.
-//    - Inject the shared `Service` class for token validation and role-based access control.
-//    - Inject `AppointmentService` to update appointment status after a prescription is issued.
+@RestController
+@RequestMapping("${api.path}prescription")
+public class PrescriptionController {
 
+    private final PrescriptionService prescriptionService;
+    private final Service service;
+    private final AppointmentService appointmentService;
 
-// 3. Define the `savePrescription` Method:
-//    - Handles HTTP POST requests to save a new prescription for a given appointment.
-//    - Accepts a validated `Prescription` object in the request body and a doctor’s token as a path variable.
-//    - Validates the token for the `"doctor"` role.
-//    - If the token is valid, updates the status of the corresponding appointment to reflect that a prescription has been added.
-//    - Delegates the saving logic to `PrescriptionService` and returns a response indicating success or failure.
+    public PrescriptionController(PrescriptionService prescriptionService, Service service,
+                                  AppointmentService appointmentService) {
+        this.prescriptionService = prescriptionService;
+        this.service = service;
+        this.appointmentService = appointmentService;
+    }
 
+    // Saves the prescription of an appointment and marks the appointment completed
+    @PostMapping("/{token}")
+    public ResponseEntity<Map<String, String>> savePrescription(@RequestBody @Valid Prescription prescription,
+                                                                @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "doctor");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return tokenCheck;
+        }
+        ResponseEntity<Map<String, String>> saved = prescriptionService.savePrescription(prescription);
+        if (saved.getStatusCode() == HttpStatus.CREATED) {
+            appointmentService.changeStatus(prescription.getAppointmentId(), AppointmentStatus.COMPLETED);
+        }
+        return saved;
+    }
 
-// 4. Define the `getPrescription` Method:
-//    - Handles HTTP GET requests to retrieve a prescription by its associated appointment ID.
-//    - Accepts the appointment ID and a doctor’s token as path variables.
-//    - Validates the token for the `"doctor"` role using the shared service.
-//    - If the token is valid, fetches the prescription using the `PrescriptionService`.
-//    - Returns the prescription details or an appropriate error message if validation fails.
+    // Returns the prescriptions of several appointments at once, e.g. ?ids=1,2,3 for the rows of a dashboard page
+    @GetMapping("/appointments/{token}")
+    public ResponseEntity<Map<String, Object>> getPrescriptions(@RequestParam List<Long> ids,
+                                                                @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "doctor");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return ResponseEntity.status(tokenCheck.getStatusCode()).body(new HashMap<>(tokenCheck.getBody()));
+        }
+        return prescriptionService.getPrescriptions(ids);
+    }
 
+    // Searches prescriptions by medication and doctor notes, e.g. ?q=ibuprofen&page=0&size=20, most relevant first
+    @GetMapping("/search/{token}")
+    public ResponseEntity<Map<String, Object>> searchPrescriptions(@RequestParam String q,
+                                                                   @RequestParam(defaultValue = "0") int page,
+                                                                   @RequestParam(defaultValue = "20") int size,
+                                                                   @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "doctor");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return ResponseEntity.status(tokenCheck.getStatusCode()).body(new HashMap<>(tokenCheck.getBody()));
+        }
+        return prescriptionService.searchPrescriptions(q, page, size);
+    }
 
+    // Returns the prescription of an appointment
+    @GetMapping("/{appointmentId}/{token}")
+    public ResponseEntity<Map<String, Object>> getPrescription(@PathVariable Long appointmentId,
+                                                               @PathVariable String token) {
+        ResponseEntity<Map<String, String>> tokenCheck = service.validateToken(token, "doctor");
+        if (!tokenCheck.getBody().isEmpty()) {
+            return ResponseEntity.status(tokenCheck.getStatusCode()).body(new HashMap<>(tokenCheck.getBody()));
+        }
+        return prescriptionService.getPrescription(appointmentId);
+    }
 }
@@ -1,6 +1,7 @@
 package com.project.back_end.models;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Future;
@@ -15,7 +16,8 @@ import java.util.UUID;
 
 
 @Entity
-@Table(name = "appointment")
+@Table(name = "appointment", uniqueConstraints = @UniqueConstraint(
+        name = "uk_appointment_doctor_time_active", columnNames = {"doctor_id", "appointment_time", "active_slot"}))
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 public class Appointment {
 
@@ -27,8 +29,11 @@ public class Appointment {
     }
 
     // Represents the unique identifier for each appointment.
+    //      - Drawn from a pooled sequence (50 ids per round trip) rather than IDENTITY, so that Hibernate can
+    //        batch inserts; on MySQL the sequence is emulated by the appointment_seq table (migration V2).
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_seq")
+    @SequenceGenerator(name = "appointment_seq", sequenceName = "appointment_seq", allocationSize = 50)
     private Long id;
 
     //  To expose public IDs and avoid leaking of auto-increment IDs.
@@ -41,6 +46,11 @@ public class Appointment {
     @NotNull(message = "An appointment should have a doctor")
     private Doctor doctor;
 
+    //      - Read-only copy of doctor_id for queries: the doctor association is filtered out once the doctor is
+    //        soft-deleted, but the appointment still belongs to them until it is purged.
+    @JsonIgnore
+    @Column(name = "doctor_id", insertable = false, updatable = false)
+    private Long doctorId;
 
     // Represents the patient assigned to this appointment.
     @ManyToOne(fetch = FetchType.LAZY)
@@ -66,6 +76,13 @@ public class Appointment {
     @NotNull(message = "status of an appointment cannot be null")
     private AppointmentStatus status;
 
+    //      - TRUE while the appointment holds its slot, NULL once it is cancelled. The unique key on
+    //        (doctor_id, appointment_time, active_slot) lets the database reject a second booking of the same slot
+    //        while cancelled rows (NULL never collides) keep their history. Kept in sync with status on every write.
+    @JsonIgnore
+    @Column(name = "active_slot")
+    private Boolean activeSlot;
+
     // Cancel reason
     @Column(name = "cancel_reason", columnDefinition = "TEXT")
     private String cancelReason;
@@ -107,6 +124,17 @@ public class Appointment {
         return appointmentTime.toLocalTime();
     }
 
+    @PrePersist
+    @PreUpdate
+    private void syncActiveSlot() {
+        activeSlot = activeSlotFor(status);
+    }
+
+    // Value of active_slot for an appointment in the given status
+    public static Boolean activeSlotFor(AppointmentStatus status) {
+        return status == AppointmentStatus.CANCELLED ? null : Boolean.TRUE;
+    }
+
     // Constructors
     public Appointment() {
         this.uuid = UUID.randomUUID().toString();
@@ -139,6 +167,10 @@ public class Appointment {
         this.doctor = doctor;
     }
 
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
     public Patient getPatient() {
         return patient;
     }
@@ -0,0 +1,101 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+
+// A completed or cancelled appointment moved out of the appointment table by AppointmentArchiver once it is older
+// than the archive horizon. Rows are written by the archiver's INSERT ... SELECT and never changed afterwards.
+// On MySQL the table is range-partitioned by month of appointment_time (migration V5), which is why the primary key
+// also holds appointment_time and why doctor and patient are plain ids: partitioned tables cannot have foreign keys.
+@Entity
+@Immutable
+@Table(name = "appointment_archive")
+public class ArchivedAppointment {
+
+    // Same id the appointment had in the appointment table, so that prescriptions keep pointing at it
+    @Id
+    private Long id;
+
+    @Column(name = "uuid", nullable = false, length = 36)
+    private String uuid;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+
+    @Column(name = "appointment_time", nullable = false)
+    private LocalDateTime appointmentTime;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private Appointment.AppointmentStatus status;
+
+    @Column(name = "cancel_reason", columnDefinition = "TEXT")
+    private String cancelReason;
+
+    @Column(name = "is_deleted", nullable = false)
+    private Boolean isDeleted;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // When the row was moved to the archive
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    protected ArchivedAppointment() {
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public Long getPatientId() {
+        return patientId;
+    }
+
+    public LocalDateTime getAppointmentTime() {
+        return appointmentTime;
+    }
+
+    public Appointment.AppointmentStatus getStatus() {
+        return status;
+    }
+
+    public String getCancelReason() {
+        return cancelReason;
+    }
+
+    public Boolean getIsDeleted() {
+        return isDeleted;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+}
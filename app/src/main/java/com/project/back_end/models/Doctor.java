@@ -1,11 +1,13 @@
 package com.project.back_end.models;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.SQLRestriction;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -16,6 +18,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "doctor")
+@SQLRestriction("is_deleted = false")
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 public class Doctor {
 
@@ -61,7 +64,8 @@ public class Doctor {
     @Column(name = "phone", nullable = false, length = 15)
     private String phone;
 
-    // For a soft delete
+    // For a soft delete: deleted doctors are filtered out of every query (@SQLRestriction) until DoctorPurger
+    // has removed their appointments and the row itself
     @Column(name = "is_deleted", nullable = false)
     private Boolean isDeleted;
 
@@ -93,7 +97,20 @@ public class Doctor {
     @Column(name = "available_times", length = 20)
     private List<String> availableTimes;
 
+    //  Description:
+    //      - Parsed form of availableTimes (minutes since midnight and AM/PM flags), built on first use
+    //        and rebuilt only when a different list is assigned, so filters never re-split the strings
+    @Transient
+    @JsonIgnore
+    private SlotSchedule slotSchedule;
+
+    @Transient
+    @JsonIgnore
+    private List<String> slotScheduleSource;
+
     // Relationships with other entities
+    //  Not serialized: listing doctors would otherwise load every appointment (and its other side) one query at a time
+    @JsonIgnore
     @OneToMany(mappedBy = "doctor", cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY)
     private List<Appointment> appointments;
 
@@ -205,6 +222,16 @@ public class Doctor {
 
     public void setAvailableTimes(List<String> availableTimes) {
         this.availableTimes = availableTimes;
+        this.slotSchedule = null;
+    }
+
+    @JsonIgnore
+    public SlotSchedule getSlotSchedule() {
+        if (slotSchedule == null || slotScheduleSource != availableTimes) {
+            slotSchedule = SlotSchedule.parse(availableTimes);
+            slotScheduleSource = availableTimes;
+        }
+        return slotSchedule;
     }
 
     public List<Appointment> getAppointments() {
@@ -1,6 +1,7 @@
 package com.project.back_end.models;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import jakarta.persistence.*;
@@ -80,6 +81,8 @@ public class Patient {
     private Gender gender;
 
     // Relationships with other entities
+    //  Not serialized: listing patients would otherwise load every appointment (and its other side) one query at a time
+    @JsonIgnore
     @OneToMany(mappedBy = "patient", cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY)
     private List<Appointment> appointments;
 
@@ -98,6 +101,7 @@ public class Patient {
     }
 
     public Patient(String name, String email, String password, String phone, String address, LocalDate dateOfBirth, Gender gender) {
+        this();
         this.name = name;
         this.email = email;
         this.password = password;
@@ -1,10 +1,13 @@
 package com.project.back_end.models;
 
-
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 
 
 @Document(collection = "prescriptions")
@@ -28,14 +31,26 @@ public class Prescription {
     private String doctorName;
 
     // Represents the ID of the associated appointment where the prescription was given
+    //      - Every prescription lookup goes by appointment, so the index is created at startup
+    //        (spring.data.mongodb.auto-index-creation)
     @NotNull(message = "The appointment ID is required")
+    @Indexed(name = "appointment_id")
     @Field("appointment_id")
     private Long appointmentId;
 
+    // Represents the ID of the patient of the appointment; set by the server when the prescription is saved
+    //      - Indexed so that the patient record can read a patient's prescriptions without waiting for the
+    //        appointment ids from MySQL; prescriptions saved before the field existed are backfilled at startup
+    @Indexed(name = "patient_id")
+    @Field("patient_id")
+    private Long patientId;
+
 
     // Represents the medication prescribed to the patient
+    //      - Part of the collection's text index (with the doctor's notes); a match here ranks three times higher
     @NotBlank(message = "The medication name is required")
     @Size(min = 3, max = 100, message = "The medication name is between 3 and 100 characters")
+    @TextIndexed(weight = 3)
     @Field("medication")
     private String medication;
 
@@ -48,6 +63,7 @@ public class Prescription {
 
     // Represents any additional notes or instructions from the doctor regarding the prescription
     @Size(max = 500, message = "The doctor's notes should not exceed 200 characters")
+    @TextIndexed
     @Field("doctor_notes")
     private String doctorNotes;
 
@@ -62,6 +78,11 @@ public class Prescription {
     @Field("pharmacy_name")
     private String pharmacyName;
 
+    // Relevance of the prescription to a text search; only set on search results and never stored
+    @TextScore
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Float score;
+
     // Constructors
     public Prescription() {}
 
@@ -106,6 +127,14 @@ public class Prescription {
         this.appointmentId = appointmentId;
     }
 
+    public Long getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(Long patientId) {
+        this.patientId = patientId;
+    }
+
     public String getMedication() {
         return medication;
     }
@@ -153,4 +182,8 @@ public class Prescription {
     public void setPharmacyName(String pharmacyName) {
         this.pharmacyName = pharmacyName;
     }
+
+    public Float getScore() {
+        return score;
+    }
 }
@@ -0,0 +1,133 @@
+package com.project.back_end.models;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Immutable, parsed form of Doctor.availableTimes: slots such as "09:00-10:00" are stored as
+// start and end minutes since midnight, sorted by start, together with precomputed AM/PM flags.
+// A slot belongs to the AM period when it starts before noon, otherwise to the PM period.
+public final class SlotSchedule {
+
+    public static final SlotSchedule EMPTY = new SlotSchedule(new int[0], new int[0], new String[0]);
+
+    private static final int NOON = 12 * 60;
+
+    private final int[] startMinutes;
+    private final int[] endMinutes;
+    private final String[] labels;
+    private final boolean am;
+    private final boolean pm;
+
+    private SlotSchedule(int[] startMinutes, int[] endMinutes, String[] labels) {
+        this.startMinutes = startMinutes;
+        this.endMinutes = endMinutes;
+        this.labels = labels;
+        this.am = startMinutes.length > 0 && startMinutes[0] < NOON;
+        this.pm = startMinutes.length > 0 && startMinutes[startMinutes.length - 1] >= NOON;
+    }
+
+    // Parses slots in the "HH:mm-HH:mm" format; malformed entries are skipped
+    public static SlotSchedule parse(List<String> slots) {
+        if (slots == null || slots.isEmpty()) {
+            return EMPTY;
+        }
+        long[] packed = new long[slots.size()];
+        int count = 0;
+        for (int i = 0; i < slots.size(); i++) {
+            String slot = slots.get(i);
+            int dash = slot != null ? slot.indexOf('-') : -1;
+            if (dash < 0) {
+                continue;
+            }
+            int start = parseMinute(slot, 0, dash);
+            int end = parseMinute(slot, dash + 1, slot.length());
+            if (start < 0 || end < 0) {
+                continue;
+            }
+            // start in the high bits for sorting, original position in the low bits to recover the label
+            packed[count++] = ((long) start << 32) | i;
+        }
+        Arrays.sort(packed, 0, count);
+        int[] startMinutes = new int[count];
+        int[] endMinutes = new int[count];
+        String[] labels = new String[count];
+        for (int i = 0; i < count; i++) {
+            String slot = slots.get((int) packed[i]);
+            int dash = slot.indexOf('-');
+            startMinutes[i] = (int) (packed[i] >>> 32);
+            endMinutes[i] = parseMinute(slot, dash + 1, slot.length());
+            labels[i] = slot;
+        }
+        return new SlotSchedule(startMinutes, endMinutes, labels);
+    }
+
+    public int size() {
+        return startMinutes.length;
+    }
+
+    public int startMinute(int index) {
+        return startMinutes[index];
+    }
+
+    public int endMinute(int index) {
+        return endMinutes[index];
+    }
+
+    // The slot as it was originally written, e.g. "09:00-10:00"
+    public String label(int index) {
+        return labels[index];
+    }
+
+    // Returns true if one of the slots starts at the given minute of the day
+    public boolean startsAt(int minute) {
+        return Arrays.binarySearch(startMinutes, minute) >= 0;
+    }
+
+    public boolean hasAm() {
+        return am;
+    }
+
+    public boolean hasPm() {
+        return pm;
+    }
+
+    // Returns true if a slot starts in the given period, "AM" or "PM" (case-insensitive)
+    public boolean hasPeriod(String amOrPm) {
+        return "AM".equalsIgnoreCase(amOrPm) ? am : pm;
+    }
+
+    // Parses "HH:mm" (surrounding spaces allowed) into minutes since midnight, or -1 if malformed
+    private static int parseMinute(String text, int from, int to) {
+        while (from < to && text.charAt(from) == ' ') {
+            from++;
+        }
+        while (to > from && text.charAt(to - 1) == ' ') {
+            to--;
+        }
+        int colon = text.indexOf(':', from);
+        if (colon < 0 || colon >= to) {
+            return -1;
+        }
+        int hours = parseDigits(text, from, colon);
+        int minutes = parseDigits(text, colon + 1, to);
+        if (hours < 0 || hours > 24 || minutes < 0 || minutes > 59) {
+            return -1;
+        }
+        return hours * 60 + minutes;
+    }
+
+    private static int parseDigits(String text, int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
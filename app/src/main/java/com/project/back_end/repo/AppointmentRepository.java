@@ -1,66 +1,141 @@
 package com.project.back_end.repo;
 
-public interface AppointmentRepository  {
-
-   // 1. Extend JpaRepository:
-//    - The repository extends JpaRepository<Appointment, Long>, which gives it basic CRUD functionality.
-//    - The methods such as save, delete, update, and find are inherited without the need for explicit implementation.
-//    - JpaRepository also includes pagination and sorting features.
-
-// Example: public interface AppointmentRepository extends JpaRepository<Appointment, Long> {}
-
-// 2. Custom Query Methods:
-
-//    - **findByDoctorIdAndAppointmentTimeBetween**:
-//      - This method retrieves a list of appointments for a specific doctor within a given time range.
-//      - The doctor’s available times are eagerly fetched to avoid lazy loading.
-//      - Return type: List<Appointment>
-//      - Parameters: Long doctorId, LocalDateTime start, LocalDateTime end
-//      - It uses a LEFT JOIN to fetch the doctor’s available times along with the appointments.
-
-//    - **findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeBetween**:
-//      - This method retrieves appointments for a specific doctor and patient name (ignoring case) within a given time range.
-//      - It performs a LEFT JOIN to fetch both the doctor and patient details along with the appointment times.
-//      - Return type: List<Appointment>
-//      - Parameters: Long doctorId, String patientName, LocalDateTime start, LocalDateTime end
-
-//    - **deleteAllByDoctorId**:
-//      - This method deletes all appointments associated with a particular doctor.
-//      - It is marked as @Modifying and @Transactional, which makes it a modification query, ensuring that the operation is executed within a transaction.
-//      - Return type: void
-//      - Parameters: Long doctorId
-
-//    - **findByPatientId**:
-//      - This method retrieves all appointments for a specific patient.
-//      - Return type: List<Appointment>
-//      - Parameters: Long patientId
-
-//    - **findByPatient_IdAndStatusOrderByAppointmentTimeAsc**:
-//      - This method retrieves all appointments for a specific patient with a given status, ordered by the appointment time.
-//      - Return type: List<Appointment>
-//      - Parameters: Long patientId, int status
-
-//    - **filterByDoctorNameAndPatientId**:
-//      - This method retrieves appointments based on a doctor’s name (using a LIKE query) and the patient’s ID.
-//      - Return type: List<Appointment>
-//      - Parameters: String doctorName, Long patientId
-
-//    - **filterByDoctorNameAndPatientIdAndStatus**:
-//      - This method retrieves appointments based on a doctor’s name (using a LIKE query), patient’s ID, and a specific appointment status.
-//      - Return type: List<Appointment>
-//      - Parameters: String doctorName, Long patientId, int status
-
-//    - **updateStatus**:
-//      - This method updates the status of a specific appointment based on its ID.
-//      - Return type: void
-//      - Parameters: int status, long id
-
-// 3. @Modifying and @Transactional annotations:
-//    - The @Modifying annotation is used to indicate that the method performs a modification operation (like DELETE or UPDATE).
-//    - The @Transactional annotation ensures that the modification is done within a transaction, meaning that if any exception occurs, the changes will be rolled back.
-
-// 4. @Repository annotation:
-//    - The @Repository annotation marks this interface as a Spring Data JPA repository.
-//    - Spring Data JPA automatically implements this repository, providing the necessary CRUD functionality and custom queries defined in the interface.
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Appointment.AppointmentStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+
+    // Appointment listings select exactly the AppointmentDTO columns in one query, without loading entities.
+    // The doctor is outer joined, as in the archive: a soft-deleted doctor is filtered out of the join
+    // (@SQLRestriction), and their appointments stay listed, without a doctor name, until DoctorPurger removes them.
+    String DTO_SELECT = "SELECT new com.project.back_end.DTO.AppointmentDTO(a.id, a.doctorId, d.name, p.id, p.name, " +
+            "p.email, p.phone, p.address, a.appointmentTime, a.status) FROM Appointment a " +
+            "LEFT JOIN Doctor d ON d.id = a.doctorId JOIN a.patient p ";
+
+    // Keyset condition: appointments strictly after the (time, id) of the last row of the previous page
+    String AFTER_CURSOR = "AND (a.appointmentTime > :afterTime OR (a.appointmentTime = :afterTime AND a.id > :afterId)) ";
+
+    String KEYSET_ORDER = "ORDER BY a.appointmentTime, a.id";
+
+    // Retrieves a single appointment as listed on the dashboards, or null
+    @Query(DTO_SELECT + "WHERE a.id = :id")
+    AppointmentDTO findDtoById(@Param("id") Long id);
+
+    // Retrieves one page of a doctor's appointments within a time range, ordered by (time, id)
+    @Query(DTO_SELECT + "WHERE a.doctorId = :doctorId AND a.appointmentTime BETWEEN :start AND :end " + AFTER_CURSOR + KEYSET_ORDER)
+    List<AppointmentDTO> findDoctorPage(@Param("doctorId") Long doctorId,
+                                        @Param("start") LocalDateTime start,
+                                        @Param("end") LocalDateTime end,
+                                        @Param("afterTime") LocalDateTime afterTime,
+                                        @Param("afterId") long afterId,
+                                        Limit limit);
+
+    // Same as above, restricted to patients whose name contains the given string, ignoring case
+    @Query(DTO_SELECT + "WHERE a.doctorId = :doctorId AND a.appointmentTime BETWEEN :start AND :end " +
+            "AND LOWER(p.name) LIKE LOWER(CONCAT('%', :patientName, '%')) " + AFTER_CURSOR + KEYSET_ORDER)
+    List<AppointmentDTO> findDoctorPageByPatientName(@Param("doctorId") Long doctorId,
+                                                     @Param("patientName") String patientName,
+                                                     @Param("start") LocalDateTime start,
+                                                     @Param("end") LocalDateTime end,
+                                                     @Param("afterTime") LocalDateTime afterTime,
+                                                     @Param("afterId") long afterId,
+                                                     Limit limit);
+
+    // Retrieves only the start times of a doctor's non-cancelled appointments in [start, end);
+    // active_slot rather than status keeps the query inside the (doctor_id, appointment_time, active_slot) index
+    @Query("SELECT a.appointmentTime FROM Appointment a WHERE a.doctor.id = :doctorId " +
+            "AND a.appointmentTime >= :start AND a.appointmentTime < :end " +
+            "AND a.activeSlot = TRUE")
+    List<LocalDateTime> findBookedTimesByDoctorIdBetween(@Param("doctorId") Long doctorId,
+                                                         @Param("start") LocalDateTime start,
+                                                         @Param("end") LocalDateTime end);
+
+    // Retrieves (doctor id, start time) of the non-cancelled appointments of several doctors in [start, end]
+    @Query("SELECT a.doctor.id, a.appointmentTime FROM Appointment a WHERE a.doctor.id IN :doctorIds " +
+            "AND a.appointmentTime >= :start AND a.appointmentTime <= :end " +
+            "AND a.activeSlot = TRUE")
+    List<Object[]> findBookedSlotsByDoctorIdsBetween(@Param("doctorIds") Collection<Long> doctorIds,
+                                                     @Param("start") LocalDateTime start,
+                                                     @Param("end") LocalDateTime end);
+
+    // Returns [appointment id, patient id] pairs for the given appointments
+    @Query("SELECT a.id, a.patient.id FROM Appointment a WHERE a.id IN :ids")
+    List<Object[]> findPatientIdsByIds(@Param("ids") Collection<Long> ids);
+
+    // Retrieves the ids of up to limit appointments of a doctor, in (doctor_id, appointment_time) index order
+    @Query("SELECT a.id FROM Appointment a WHERE a.doctor.id = :doctorId")
+    List<Long> findIdsByDoctorId(@Param("doctorId") Long doctorId, Limit limit);
+
+    // Retrieves one page of a patient's appointments, ordered by (time, id)
+    @Query(DTO_SELECT + "WHERE p.id = :patientId " + AFTER_CURSOR + KEYSET_ORDER)
+    List<AppointmentDTO> findPatientPage(@Param("patientId") Long patientId,
+                                         @Param("afterTime") LocalDateTime afterTime,
+                                         @Param("afterId") long afterId,
+                                         Limit limit);
+
+    // Retrieves one page of a patient's appointments with the given status, ordered by (time, id)
+    @Query(DTO_SELECT + "WHERE p.id = :patientId AND a.status = :status " + AFTER_CURSOR + KEYSET_ORDER)
+    List<AppointmentDTO> findPatientPageByStatus(@Param("patientId") Long patientId,
+                                                 @Param("status") AppointmentStatus status,
+                                                 @Param("afterTime") LocalDateTime afterTime,
+                                                 @Param("afterId") long afterId,
+                                                 Limit limit);
+
+    // Retrieves the appointments of a patient whose doctor name matches, ignoring case
+    @Query(DTO_SELECT + "WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%')) AND p.id = :patientId " +
+            KEYSET_ORDER)
+    List<AppointmentDTO> filterByDoctorNameAndPatientId(@Param("doctorName") String doctorName,
+                                                        @Param("patientId") Long patientId);
+
+    // Retrieves the appointments of a patient with the given status whose doctor name matches, ignoring case
+    @Query(DTO_SELECT + "WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%')) AND p.id = :patientId " +
+            "AND a.status = :status " + KEYSET_ORDER)
+    List<AppointmentDTO> filterByDoctorNameAndPatientIdAndStatus(@Param("doctorName") String doctorName,
+                                                                 @Param("patientId") Long patientId,
+                                                                 @Param("status") AppointmentStatus status);
+
+    // Retrieves the ids of up to limit scheduled appointments that started before the cutoff, oldest first
+    @Query("SELECT a.id FROM Appointment a WHERE a.status = com.project.back_end.models.Appointment.AppointmentStatus.SCHEDULED " +
+            "AND a.appointmentTime < :cutoff " + KEYSET_ORDER)
+    List<Long> findScheduledIdsBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    // Marks the given appointments COMPLETED if they are still scheduled; returns the number of rows changed
+    @Modifying
+    @Query("UPDATE Appointment a SET a.status = com.project.back_end.models.Appointment.AppointmentStatus.COMPLETED, " +
+            "a.updatedAt = :now WHERE a.id IN :ids " +
+            "AND a.status = com.project.back_end.models.Appointment.AppointmentStatus.SCHEDULED")
+    int completeScheduled(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Retrieves the ids of up to limit completed or cancelled appointments that started before the cutoff, oldest first
+    @Query("SELECT a.id FROM Appointment a WHERE a.status IN (" +
+            "com.project.back_end.models.Appointment.AppointmentStatus.COMPLETED, " +
+            "com.project.back_end.models.Appointment.AppointmentStatus.CANCELLED) " +
+            "AND a.appointmentTime < :cutoff " + KEYSET_ORDER)
+    List<Long> findArchivableIdsBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    // Deletes the given appointments without loading them; returns the number of rows deleted
+    @Modifying
+    @Query("DELETE FROM Appointment a WHERE a.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    // Updates the status of a single appointment; activeSlot must be Appointment.activeSlotFor(status)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Appointment a SET a.status = :status, a.activeSlot = :activeSlot WHERE a.id = :id")
+    void updateStatus(@Param("status") AppointmentStatus status, @Param("activeSlot") Boolean activeSlot,
+                      @Param("id") long id);
 
 }
@@ -0,0 +1,103 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.Appointment.AppointmentStatus;
+import com.project.back_end.models.ArchivedAppointment;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static com.project.back_end.repo.AppointmentRepository.AFTER_CURSOR;
+import static com.project.back_end.repo.AppointmentRepository.KEYSET_ORDER;
+
+@Repository
+public interface ArchivedAppointmentRepository extends JpaRepository<ArchivedAppointment, Long> {
+
+    // Same columns as AppointmentRepository.DTO_SELECT; doctors and patients are outer joined since archived rows
+    // have no foreign keys and may outlive them
+    String DTO_SELECT = "SELECT new com.project.back_end.DTO.AppointmentDTO(a.id, a.doctorId, d.name, a.patientId, " +
+            "p.name, p.email, p.phone, p.address, a.appointmentTime, a.status) FROM ArchivedAppointment a " +
+            "LEFT JOIN Doctor d ON d.id = a.doctorId LEFT JOIN Patient p ON p.id = a.patientId ";
+
+    // Copies the given rows of the appointment table into the archive; the caller deletes them from the appointment
+    // table in the same transaction
+    @Modifying
+    @Query(value = "INSERT INTO appointment_archive (id, uuid, doctor_id, patient_id, appointment_time, status, " +
+            "cancel_reason, is_deleted, created_at, updated_at, archived_at) " +
+            "SELECT id, uuid, doctor_id, patient_id, appointment_time, status, cancel_reason, is_deleted, " +
+            "created_at, updated_at, :now FROM appointment WHERE id IN (:ids)", nativeQuery = true)
+    int copyFromAppointments(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Returns [appointment id, patient id] pairs for the given archived appointments
+    @Query("SELECT a.id, a.patientId FROM ArchivedAppointment a WHERE a.id IN :ids")
+    List<Object[]> findPatientIdsByIds(@Param("ids") Collection<Long> ids);
+
+    // Retrieves the ids of up to limit archived appointments of a doctor
+    @Query("SELECT a.id FROM ArchivedAppointment a WHERE a.doctorId = :doctorId")
+    List<Long> findIdsByDoctorId(@Param("doctorId") Long doctorId, Limit limit);
+
+    // Deletes the given archived appointments; native since archived rows are immutable entities
+    @Modifying
+    @Query(value = "DELETE FROM appointment_archive WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    // Start time of the most recent archived appointment, or null if the archive is empty
+    @Query("SELECT MAX(a.appointmentTime) FROM ArchivedAppointment a")
+    LocalDateTime findLatestAppointmentTime();
+
+    // Retrieves one page of a doctor's archived appointments within a time range, ordered by (time, id)
+    @Query(DTO_SELECT + "WHERE a.doctorId = :doctorId AND a.appointmentTime BETWEEN :start AND :end " +
+            AFTER_CURSOR + KEYSET_ORDER)
+    List<AppointmentDTO> findDoctorPage(@Param("doctorId") Long doctorId,
+                                        @Param("start") LocalDateTime start,
+                                        @Param("end") LocalDateTime end,
+                                        @Param("afterTime") LocalDateTime afterTime,
+                                        @Param("afterId") long afterId,
+                                        Limit limit);
+
+    // Same as above, restricted to patients whose name contains the given string, ignoring case
+    @Query(DTO_SELECT + "WHERE a.doctorId = :doctorId AND a.appointmentTime BETWEEN :start AND :end " +
+            "AND LOWER(p.name) LIKE LOWER(CONCAT('%', :patientName, '%')) " + AFTER_CURSOR + KEYSET_ORDER)
+    List<AppointmentDTO> findDoctorPageByPatientName(@Param("doctorId") Long doctorId,
+                                                     @Param("patientName") String patientName,
+                                                     @Param("start") LocalDateTime start,
+                                                     @Param("end") LocalDateTime end,
+                                                     @Param("afterTime") LocalDateTime afterTime,
+                                                     @Param("afterId") long afterId,
+                                                     Limit limit);
+
+    // Retrieves one page of a patient's archived appointments, ordered by (time, id)
+    @Query(DTO_SELECT + "WHERE a.patientId = :patientId " + AFTER_CURSOR + KEYSET_ORDER)
+    List<AppointmentDTO> findPatientPage(@Param("patientId") Long patientId,
+                                         @Param("afterTime") LocalDateTime afterTime,
+                                         @Param("afterId") long afterId,
+                                         Limit limit);
+
+    // Retrieves one page of a patient's archived appointments with the given status, ordered by (time, id)
+    @Query(DTO_SELECT + "WHERE a.patientId = :patientId AND a.status = :status " + AFTER_CURSOR + KEYSET_ORDER)
+    List<AppointmentDTO> findPatientPageByStatus(@Param("patientId") Long patientId,
+                                                 @Param("status") AppointmentStatus status,
+                                                 @Param("afterTime") LocalDateTime afterTime,
+                                                 @Param("afterId") long afterId,
+                                                 Limit limit);
+
+    // Retrieves the archived appointments of a patient whose doctor name matches, ignoring case
+    @Query(DTO_SELECT + "WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%')) AND a.patientId = :patientId " +
+            KEYSET_ORDER)
+    List<AppointmentDTO> filterByDoctorNameAndPatientId(@Param("doctorName") String doctorName,
+                                                        @Param("patientId") Long patientId);
+
+    // Retrieves the archived appointments of a patient with the given status whose doctor name matches, ignoring case
+    @Query(DTO_SELECT + "WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%')) AND a.patientId = :patientId " +
+            "AND a.status = :status " + KEYSET_ORDER)
+    List<AppointmentDTO> filterByDoctorNameAndPatientIdAndStatus(@Param("doctorName") String doctorName,
+                                                                 @Param("patientId") Long patientId,
+                                                                 @Param("status") AppointmentStatus status);
+}
@@ -1,39 +1,64 @@
 package com.project.back_end.repo;
 
-public interface DoctorRepository {
-   // 1. Extend JpaRepository:
-//    - The repository extends JpaRepository<Doctor, Long>, which gives it basic CRUD functionality.
-//    - This allows the repository to perform operations like save, delete, update, and find without needing to implement these methods manually.
-//    - JpaRepository also includes features like pagination and sorting.
-
-// Example: public interface DoctorRepository extends JpaRepository<Doctor, Long> {}
-
-// 2. Custom Query Methods:
-
-//    - **findByEmail**:
-//      - This method retrieves a Doctor by their email.
-//      - Return type: Doctor
-//      - Parameters: String email
-
-//    - **findByNameLike**:
-//      - This method retrieves a list of Doctors whose name contains the provided search string (case-sensitive).
-//      - The `CONCAT('%', :name, '%')` is used to create a pattern for partial matching.
-//      - Return type: List<Doctor>
-//      - Parameters: String name
-
-//    - **findByNameContainingIgnoreCaseAndSpecialtyIgnoreCase**:
-//      - This method retrieves a list of Doctors where the name contains the search string (case-insensitive) and the specialty matches exactly (case-insensitive).
-//      - It combines both fields for a more specific search.
-//      - Return type: List<Doctor>
-//      - Parameters: String name, String specialty
-
-//    - **findBySpecialtyIgnoreCase**:
-//      - This method retrieves a list of Doctors with the specified specialty, ignoring case sensitivity.
-//      - Return type: List<Doctor>
-//      - Parameters: String specialty
-
-// 3. @Repository annotation:
-//    - The @Repository annotation marks this interface as a Spring Data JPA repository.
-//    - Spring Data JPA automatically implements this repository, providing the necessary CRUD functionality and custom queries defined in the interface.
-
-}
\ No newline at end of file
+import com.project.back_end.models.Doctor;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DoctorRepository extends JpaRepository<Doctor, Long> {
+
+    // Finds a doctor by email, returns null if none exists
+    Doctor findByEmail(String email);
+
+    // Finds a doctor together with their available times in a single query
+    @EntityGraph(attributePaths = "availableTimes")
+    Optional<Doctor> findWithAvailableTimesById(Long id);
+
+    // Fetches every doctor together with their available times in a single query
+    @Query("SELECT DISTINCT d FROM Doctor d LEFT JOIN FETCH d.availableTimes")
+    List<Doctor> findAllWithAvailableTimes();
+
+    // Fetches the given doctors together with their available times in a single query
+    @Query("SELECT DISTINCT d FROM Doctor d LEFT JOIN FETCH d.availableTimes WHERE d.id IN :ids")
+    List<Doctor> findAllWithAvailableTimesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Loads only the doctor card columns of the given doctors, one row (id, name, specialty, email, slot) per slot
+    @Query("SELECT d.id, d.name, d.specialty, d.email, t FROM Doctor d LEFT JOIN d.availableTimes t WHERE d.id IN :ids")
+    List<Object[]> findCardRowsByIdIn(@Param("ids") List<Long> ids);
+
+    // Replaces the stored password hash, used to upgrade hashes on login
+    @Modifying
+    @Transactional
+    @Query("UPDATE Doctor d SET d.password = :password WHERE d.id = :id")
+    void updatePassword(@Param("id") Long id, @Param("password") String password);
+
+    // Marks a doctor as deleted; returns 0 if there is no such (non-deleted) doctor
+    @Modifying
+    @Transactional
+    @Query("UPDATE Doctor d SET d.isDeleted = true WHERE d.id = :id AND d.isDeleted = false")
+    int softDelete(@Param("id") Long id);
+
+    // Ids of the soft-deleted doctors whose purge has not finished, bypassing the soft delete restriction
+    @Query(value = "SELECT id FROM doctor WHERE is_deleted = true", nativeQuery = true)
+    List<Long> findSoftDeletedIds();
+
+    // Removes the available times of a doctor
+    @Modifying
+    @Query(value = "DELETE FROM doctor_available_times WHERE doctor_id = :id", nativeQuery = true)
+    int deleteAvailableTimes(@Param("id") Long id);
+
+    // Removes a soft-deleted doctor row; its appointments must be gone already
+    @Modifying
+    @Query(value = "DELETE FROM doctor WHERE id = :id AND is_deleted = true", nativeQuery = true)
+    int deleteSoftDeleted(@Param("id") Long id);
+
+}
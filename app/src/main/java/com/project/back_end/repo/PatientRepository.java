@@ -1,29 +1,33 @@
 package com.project.back_end.repo;
 
-public interface PatientRepository {
-    // 1. Extend JpaRepository:
-//    - The repository extends JpaRepository<Patient, Long>, which provides basic CRUD functionality.
-//    - This allows the repository to perform operations like save, delete, update, and find without needing to implement these methods manually.
-//    - JpaRepository also includes features like pagination and sorting.
+import com.project.back_end.models.Patient;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-// Example: public interface PatientRepository extends JpaRepository<Patient, Long> {}
+import java.util.Collection;
+import java.util.List;
 
-// 2. Custom Query Methods:
+@Repository
+public interface PatientRepository extends JpaRepository<Patient, Long> {
 
-//    - **findByEmail**:
-//      - This method retrieves a Patient by their email address.
-//      - Return type: Patient
-//      - Parameters: String email
+    // Finds a patient by email, returns null if none exists
+    Patient findByEmail(String email);
 
-//    - **findByEmailOrPhone**:
-//      - This method retrieves a Patient by either their email or phone number, allowing flexibility for the search.
-//      - Return type: Patient
-//      - Parameters: String email, String phone
+    // Finds a patient matching either the email or the phone number
+    Patient findByEmailOrPhone(String email, String phone);
 
-// 3. @Repository annotation:
-//    - The @Repository annotation marks this interface as a Spring Data JPA repository.
-//    - Spring Data JPA automatically implements this repository, providing the necessary CRUD functionality and custom queries defined in the interface.
+    // Returns which of the given ids belong to existing patients
+    @Query("SELECT p.id FROM Patient p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 
+    // Replaces the stored password hash, used to upgrade hashes on login
+    @Modifying
+    @Transactional
+    @Query("UPDATE Patient p SET p.password = :password WHERE p.id = :id")
+    void updatePassword(@Param("id") Long id, @Param("password") String password);
 
 }
-
@@ -1,21 +1,52 @@
 package com.project.back_end.repo;
 
-public interface PrescriptionRepository  {
-// 1. Extend MongoRepository:
-//    - The repository extends MongoRepository<Prescription, String>, which provides basic CRUD functionality for MongoDB.
-//    - This allows the repository to perform operations like save, delete, update, and find without needing to implement these methods manually.
-//    - MongoRepository is tailored for working with MongoDB, unlike JpaRepository which is used for relational databases.
+import com.project.back_end.models.Prescription;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
+import org.springframework.stereotype.Repository;
 
-// Example: public interface PrescriptionRepository extends MongoRepository<Prescription, String> {}
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
-// 2. Custom Query Method:
+@Repository
+public interface PrescriptionRepository extends MongoRepository<Prescription, String> {
 
-//    - **findByAppointmentId**:
-//      - This method retrieves a list of prescriptions associated with a specific appointment.
-//      - Return type: List<Prescription>
-//      - Parameters: Long appointmentId
-//      - MongoRepository automatically derives the query from the method name, in this case, it will find prescriptions by the appointment ID.
+    // Retrieves the prescriptions written for an appointment
+    List<Prescription> findByAppointmentId(Long appointmentId);
 
+    // Returns true if the appointment already has a prescription
+    boolean existsByAppointmentId(Long appointmentId);
 
-}
+    // Retrieves the prescriptions of many appointments with one $in query on the appointment_id index,
+    // reading only the id, appointment id, medication and dosage
+    @Query(value = "{ 'appointment_id': { $in: ?0 } }", fields = "{ 'appointment_id': 1, 'medication': 1, 'dosage': 1 }")
+    List<Prescription> findSummariesByAppointmentIdIn(Collection<Long> appointmentIds);
+
+    // Retrieves every prescription of a patient with one query on the patient_id index,
+    // reading only the id, appointment id, medication and dosage
+    @Query(value = "{ 'patient_id': ?0 }", fields = "{ 'appointment_id': 1, 'medication': 1, 'dosage': 1 }")
+    List<Prescription> findSummariesByPatientId(Long patientId);
+
+    // Retrieves up to limit prescriptions saved before patient_id existed, reading only their appointment id
+    @Query(value = "{ 'patient_id': { $exists: false } }", fields = "{ 'appointment_id': 1 }")
+    List<Prescription> findWithoutPatientId(Limit limit);
 
+    // Sets the patient id of the prescriptions of the given appointments; null marks appointments that no longer exist
+    @Query("{ 'appointment_id': { $in: ?0 } }")
+    @Update("{ '$set': { 'patient_id': ?1 } }")
+    long updatePatientIdByAppointmentIdIn(Collection<Long> appointmentIds, Long patientId);
+
+    // Full-text search over medication and doctor notes using the text index, most relevant first
+    Page<Prescription> findAllByOrderByScoreDesc(TextCriteria criteria, Pageable pageable);
+
+    // Iterates over every prescription with a server-side cursor, 500 documents per batch; close the stream when done
+    @Meta(cursorBatchSize = 500)
+    Stream<Prescription> streamAllBy();
+}
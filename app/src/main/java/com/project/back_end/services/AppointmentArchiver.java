@@ -0,0 +1,177 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+
+// Moves completed and cancelled appointments older than the archive horizon from the appointment table to the
+// monthly partitioned appointment_archive table, so that the hot table every booking query reads stays small.
+// Each batch is copied with INSERT ... SELECT and deleted in one short transaction, so a run that stops midway
+// leaves every appointment in exactly one of the two tables and the next run continues where it stopped.
+// Read paths ask holdsAppointmentsFrom() and only query the archive when the requested range reaches back into it.
+@Component
+public class AppointmentArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentArchiver.class);
+
+    // Month of the first monthly partition; earlier rows go to the p_old partition created by migration V5
+    private static final YearMonth FIRST_PARTITION_MONTH = YearMonth.of(2024, 1);
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // Latest archived start time, null when the archive is empty
+    private record Watermark(LocalDateTime latest) {
+    }
+
+    private final AppointmentRepository appointmentRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate batchTransaction;
+    private final Period horizon;
+    private final int batchSize;
+
+    private final DistributionSummary rowsPerRun;
+    private final Counter failures;
+    private final Timer runDuration;
+
+    // Loaded on first use, then advanced by every run
+    private volatile Watermark watermark;
+    private volatile Boolean partitioned;
+
+    public AppointmentArchiver(AppointmentRepository appointmentRepository,
+                               ArchivedAppointmentRepository archivedAppointmentRepository,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               ObjectProvider<MeterRegistry> meterRegistry,
+                               @Value("${appointment.archive.horizon:P1Y}") String horizon,
+                               @Value("${appointment.archive.batch-size:1000}") int batchSize) {
+        this.appointmentRepository = appointmentRepository;
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setTimeout(30);
+        this.horizon = Period.parse(horizon);
+        this.batchSize = Math.max(batchSize, 1);
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.rowsPerRun = DistributionSummary.builder("appointment.archive.rows")
+                .description("Appointments moved to the archive per run").register(registry);
+        this.failures = Counter.builder("appointment.archive.failures")
+                .description("Runs stopped by an error").register(registry);
+        this.runDuration = Timer.builder("appointment.archive.duration")
+                .description("Duration of a run").register(registry);
+    }
+
+    @Scheduled(initialDelayString = "${appointment.archive.initial-delay:PT2M}",
+            fixedDelayString = "${appointment.archive.interval:PT1H}")
+    public void archive() {
+        archive(LocalDateTime.now());
+    }
+
+    // Archives the completed and cancelled appointments that started before now minus the horizon;
+    // returns the number of rows moved
+    public int archive(LocalDateTime now) {
+        LocalDateTime cutoff = now.minus(horizon);
+        long started = System.nanoTime();
+        int rows = 0;
+        try {
+            addMonthlyPartitions(cutoff);
+            while (true) {
+                Integer moved = batchTransaction.execute(status -> {
+                    List<Long> ids = appointmentRepository.findArchivableIdsBefore(cutoff, Limit.of(batchSize));
+                    if (ids.isEmpty()) {
+                        return null;
+                    }
+                    int copied = archivedAppointmentRepository.copyFromAppointments(ids, now);
+                    int deleted = appointmentRepository.deleteByIds(ids);
+                    if (copied != deleted) {
+                        throw new IllegalStateException("Copied " + copied + " appointments but deleted " + deleted);
+                    }
+                    return deleted;
+                });
+                if (moved == null) {
+                    break;
+                }
+                rows += moved;
+            }
+            watermark = new Watermark(archivedAppointmentRepository.findLatestAppointmentTime());
+        } catch (Exception e) {
+            failures.increment();
+            watermark = null;
+            logger.error("Appointment archiving stopped after {} rows, the next run resumes", rows, e);
+        }
+        rowsPerRun.record(rows);
+        runDuration.record(Duration.ofNanos(System.nanoTime() - started));
+        if (rows > 0) {
+            logger.info("Moved {} appointments older than {} to the archive", rows, cutoff);
+        }
+        return rows;
+    }
+
+    // True if the archive may hold appointments starting at or after the given time, i.e. a listing that
+    // continues from there has to read the archive too
+    public boolean holdsAppointmentsFrom(LocalDateTime time) {
+        Watermark current = watermark;
+        if (current == null) {
+            current = new Watermark(archivedAppointmentRepository.findLatestAppointmentTime());
+            watermark = current;
+        }
+        return current.latest() != null && !current.latest().isBefore(time);
+    }
+
+    // On MySQL, splits monthly partitions off p_max up to the cutoff month, so that archived rows never land in
+    // p_max and the reorganization only ever touches an empty partition
+    private void addMonthlyPartitions(LocalDateTime cutoff) {
+        if (!isPartitioned()) {
+            return;
+        }
+        List<String> names = jdbcTemplate.queryForList("SELECT partition_name FROM information_schema.partitions " +
+                "WHERE table_schema = DATABASE() AND table_name = 'appointment_archive'", String.class);
+        YearMonth last = names.stream()
+                .filter(name -> name != null && name.matches("p\\d{6}"))
+                .map(name -> YearMonth.parse(name.substring(1), PARTITION_MONTH))
+                .max(Comparator.naturalOrder())
+                .orElse(FIRST_PARTITION_MONTH.minusMonths(1));
+        YearMonth target = YearMonth.from(cutoff);
+        if (!last.isBefore(target)) {
+            return;
+        }
+        StringBuilder partitions = new StringBuilder();
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(target); month = month.plusMonths(1)) {
+            partitions.append("PARTITION p").append(month.format(PARTITION_MONTH))
+                    .append(" VALUES LESS THAN ('").append(month.plusMonths(1).atDay(1)).append("'), ");
+        }
+        jdbcTemplate.execute("ALTER TABLE appointment_archive REORGANIZE PARTITION p_max INTO (" +
+                partitions + "PARTITION p_max VALUES LESS THAN (MAXVALUE))");
+    }
+
+    // Only the MySQL schema (migration V5) is partitioned
+    private boolean isPartitioned() {
+        if (partitioned == null) {
+            partitioned = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "MySQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return partitioned;
+    }
+}
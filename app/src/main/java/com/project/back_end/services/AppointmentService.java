@@ -1,45 +1,412 @@
 package com.project.back_end.services;
 
+import com.project.back_end.DTO.AppointmentCursor;
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Appointment.AppointmentStatus;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@org.springframework.stereotype.Service
 public class AppointmentService {
-// 1. **Add @Service Annotation**:
-//    - To indicate that this class is a service layer class for handling business logic.
-//    - The `@Service` annotation should be added before the class declaration to mark it as a Spring service component.
-//    - Instruction: Add `@Service` above the class definition.
-
-// 2. **Constructor Injection for Dependencies**:
-//    - The `AppointmentService` class requires several dependencies like `AppointmentRepository`, `Service`, `TokenService`, `PatientRepository`, and `DoctorRepository`.
-//    - These dependencies should be injected through the constructor.
-//    - Instruction: Ensure constructor injection is used for proper dependency management in Spring.
-
-// 3. **Add @Transactional Annotation for Methods that Modify Database**:
-//    - The methods that modify or update the database should be annotated with `@Transactional` to ensure atomicity and consistency of the operations.
-//    - Instruction: Add the `@Transactional` annotation above methods that interact with the database, especially those modifying data.
-
-// 4. **Book Appointment Method**:
-//    - Responsible for saving the new appointment to the database.
-//    - If the save operation fails, it returns `0`; otherwise, it returns `1`.
-//    - Instruction: Ensure that the method handles any exceptions and returns an appropriate result code.
-
-// 5. **Update Appointment Method**:
-//    - This method is used to update an existing appointment based on its ID.
-//    - It validates whether the patient ID matches, checks if the appointment is available for updating, and ensures that the doctor is available at the specified time.
-//    - If the update is successful, it saves the appointment; otherwise, it returns an appropriate error message.
-//    - Instruction: Ensure proper validation and error handling is included for appointment updates.
-
-// 6. **Cancel Appointment Method**:
-//    - This method cancels an appointment by deleting it from the database.
-//    - It ensures the patient who owns the appointment is trying to cancel it and handles possible errors.
-//    - Instruction: Make sure that the method checks for the patient ID match before deleting the appointment.
-
-// 7. **Get Appointments Method**:
-//    - This method retrieves a list of appointments for a specific doctor on a particular day, optionally filtered by the patient's name.
-//    - It uses `@Transactional` to ensure that database operations are consistent and handled in a single transaction.
-//    - Instruction: Ensure the correct use of transaction boundaries, especially when querying the database for appointments.
-
-// 8. **Change Status Method**:
-//    - This method updates the status of an appointment by changing its value in the database.
-//    - It should be annotated with `@Transactional` to ensure the operation is executed in a single transaction.
-//    - Instruction: Add `@Transactional` before this method to ensure atomicity when updating appointment status.
 
+    private static final int BOOKING_LOCK_STRIPES = 64;
+    public static final int MAX_BATCH_SIZE = 500;
+
+    private record Slot(Long doctorId, LocalDateTime time) {
+    }
+
+    private final AppointmentRepository appointmentRepository;
+    private final Service service;
+    private final TokenService tokenService;
+    private final PatientRepository patientRepository;
+    private final DoctorRepository doctorRepository;
+    private final AppointmentSlotIndex slotIndex;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final AppointmentArchiver archiver;
+    private final ScheduleEvents events;
+    private final TransactionTemplate transactionTemplate;
+
+    // Striped per-doctor booking locks; a doctor always maps to the same lock
+    private final ReentrantLock[] bookingLocks = new ReentrantLock[BOOKING_LOCK_STRIPES];
+
+    public AppointmentService(AppointmentRepository appointmentRepository,
+                              Service service,
+                              TokenService tokenService,
+                              PatientRepository patientRepository,
+                              DoctorRepository doctorRepository,
+                              AppointmentSlotIndex slotIndex,
+                              ArchivedAppointmentRepository archivedAppointmentRepository,
+                              AppointmentArchiver archiver,
+                              ScheduleEvents events,
+                              PlatformTransactionManager transactionManager) {
+        this.appointmentRepository = appointmentRepository;
+        this.service = service;
+        this.tokenService = tokenService;
+        this.patientRepository = patientRepository;
+        this.doctorRepository = doctorRepository;
+        this.slotIndex = slotIndex;
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.archiver = archiver;
+        this.events = events;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < bookingLocks.length; i++) {
+            bookingLocks[i] = new ReentrantLock();
+        }
+    }
+
+    // Returns true if the appointment is for the patient the token was issued to; patients only book for themselves
+    public boolean isForTokenPatient(Appointment appointment, String token) {
+        Long patientId = resolveUserId(token, "patient");
+        return patientId != null && appointment.getPatient() != null
+                && patientId.equals(appointment.getPatient().getId());
+    }
+
+    // Saves a new appointment: 1 on success, -1 if the slot was taken by a concurrent booking, 0 on failure.
+    // Bookings for the same doctor are serialized by a striped lock, so the slot check and the insert cannot
+    // interleave; bookings for other doctors proceed in parallel. The unique key on active slots still rejects
+    // a double booking made through another application instance.
+    public int bookAppointment(Appointment appointment) {
+        Long doctorId = appointment.getDoctor().getId();
+        ReentrantLock lock = bookingLocks[stripeOf(doctorId)];
+        lock.lock();
+        try {
+            if (slotIndex.isBooked(doctorId, appointment.getAppointmentTime())) {
+                return -1;
+            }
+            // commits in its own transaction, so the slot index is updated before the lock is released
+            appointmentRepository.saveAndFlush(appointment);
+            slotIndex.markBooked(doctorId, appointment.getAppointmentTime());
+            events.booked(doctorId, appointment.getAppointmentTime(), appointment.getId());
+            return 1;
+        } catch (DataIntegrityViolationException e) {
+            return -1;
+        } catch (Exception e) {
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Books several appointments at once and reports the outcome of each, in request order: status 201 with the
+    // new id, 400 for a missing or unknown doctor or patient or a time not in the future, 409 for a slot the doctor
+    // does not offer or that is already booked (also by an earlier item of the same request).
+    // All slots are checked with one query, and the accepted appointments are inserted in JDBC batches in a single
+    // transaction, holding the booking locks of every doctor involved.
+    public List<Map<String, Object>> bookAppointments(List<Appointment> appointments) {
+        List<Map<String, Object>> results = new ArrayList<>(appointments.size());
+        Set<Long> doctorIds = new HashSet<>();
+        Set<Long> patientIds = new HashSet<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Appointment appointment : appointments) {
+            results.add(null);
+            if (appointment.getDoctor() != null && appointment.getDoctor().getId() != null) {
+                doctorIds.add(appointment.getDoctor().getId());
+            }
+            if (appointment.getPatient() != null && appointment.getPatient().getId() != null) {
+                patientIds.add(appointment.getPatient().getId());
+            }
+        }
+        Map<Long, Doctor> doctors = doctorIds.isEmpty() ? Map.of() : doctorRepository.findAllWithAvailableTimesByIdIn(doctorIds)
+                .stream().collect(Collectors.toMap(Doctor::getId, Function.identity()));
+        Set<Long> patients = patientIds.isEmpty() ? Set.of() : new HashSet<>(patientRepository.findExistingIds(patientIds));
+
+        // items that pass the per-item checks; slot availability is checked under the locks
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < appointments.size(); i++) {
+            Appointment appointment = appointments.get(i);
+            LocalDateTime time = appointment.getAppointmentTime();
+            if (appointment.getDoctor() == null || !doctors.containsKey(appointment.getDoctor().getId())) {
+                results.set(i, batchResult(i, HttpStatus.BAD_REQUEST, "Invalid doctor id", null));
+            } else if (appointment.getPatient() == null || !patients.contains(appointment.getPatient().getId())) {
+                results.set(i, batchResult(i, HttpStatus.BAD_REQUEST, "Invalid patient id", null));
+            } else if (time == null || !time.isAfter(now)) {
+                results.set(i, batchResult(i, HttpStatus.BAD_REQUEST, "Appointment time must be in the future", null));
+            } else if (!doctors.get(appointment.getDoctor().getId()).getSlotSchedule().startsAt(time.getHour() * 60 + time.getMinute())) {
+                results.set(i, batchResult(i, HttpStatus.CONFLICT, "Doctor not available at the given time", null));
+            } else {
+                candidates.add(i);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return results;
+        }
+
+        List<ReentrantLock> locks = doctorIds.stream().map(this::stripeOf).distinct().sorted()
+                .map(stripe -> bookingLocks[stripe]).collect(Collectors.toList());
+        locks.forEach(ReentrantLock::lock);
+        try {
+            LocalDateTime start = candidates.stream().map(i -> appointments.get(i).getAppointmentTime()).min(LocalDateTime::compareTo).get();
+            LocalDateTime end = candidates.stream().map(i -> appointments.get(i).getAppointmentTime()).max(LocalDateTime::compareTo).get();
+            Set<Slot> taken = new HashSet<>();
+            for (Object[] row : appointmentRepository.findBookedSlotsByDoctorIdsBetween(doctorIds, start, end)) {
+                taken.add(new Slot((Long) row[0], (LocalDateTime) row[1]));
+            }
+            List<Integer> accepted = new ArrayList<>();
+            for (int i : candidates) {
+                Appointment appointment = appointments.get(i);
+                if (taken.add(new Slot(appointment.getDoctor().getId(), appointment.getAppointmentTime()))) {
+                    accepted.add(i);
+                } else {
+                    results.set(i, batchResult(i, HttpStatus.CONFLICT, "Appointment already booked for given time", null));
+                }
+            }
+            try {
+                List<Appointment> saved = transactionTemplate.execute(status -> insertBatch(appointments, accepted));
+                for (int k = 0; k < accepted.size(); k++) {
+                    int i = accepted.get(k);
+                    results.set(i, batchResult(i, HttpStatus.CREATED, "Appointment Booked", saved.get(k).getId()));
+                }
+            } catch (DataIntegrityViolationException e) {
+                // a slot was booked through another instance meanwhile: book the items one by one instead
+                for (int i : accepted) {
+                    Appointment appointment = appointments.get(i);
+                    Appointment single = new Appointment(appointment.getDoctor(), appointment.getPatient(),
+                            appointment.getAppointmentTime(), AppointmentStatus.SCHEDULED);
+                    int booking = bookAppointment(single);
+                    results.set(i, booking == 1 ? batchResult(i, HttpStatus.CREATED, "Appointment Booked", single.getId())
+                            : booking == -1 ? batchResult(i, HttpStatus.CONFLICT, "Appointment already booked for given time", null)
+                            : batchResult(i, HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error", null));
+                }
+            }
+        } finally {
+            locks.forEach(ReentrantLock::unlock);
+        }
+        return results;
+    }
+
+    // Moves an existing appointment of the patient the token was issued to, after checking the new slot is free
+    @Transactional
+    public ResponseEntity<Map<String, String>> updateAppointment(Appointment appointment, String token) {
+        Map<String, String> response = new HashMap<>();
+        Appointment existing = appointment.getId() != null
+                ? appointmentRepository.findById(appointment.getId()).orElse(null)
+                : null;
+        if (existing == null) {
+            response.put("message", "Appointment not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        Long patientId = resolveUserId(token, "patient");
+        if (patientId == null || !patientId.equals(existing.getPatient().getId())) {
+            response.put("message", "Unauthorized to update this appointment");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        Long oldDoctorId = existing.getDoctor().getId();
+        LocalDateTime oldTime = existing.getAppointmentTime();
+        boolean sameSlot = oldDoctorId.equals(appointment.getDoctor().getId()) && oldTime.equals(appointment.getAppointmentTime());
+        if (!sameSlot) {
+            int validation = service.validateAppointment(appointment);
+            if (validation == -1) {
+                response.put("message", "Invalid doctor id");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+            if (validation == 0) {
+                response.put("message", "Appointment already booked for given time or doctor not available");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+        }
+        try {
+            existing.setDoctor(doctorRepository.getReferenceById(appointment.getDoctor().getId()));
+            existing.setAppointmentTime(appointment.getAppointmentTime());
+            if (appointment.getStatus() != null) {
+                existing.setStatus(appointment.getStatus());
+            }
+            appointmentRepository.saveAndFlush(existing);
+            slotIndex.markFree(oldDoctorId, oldTime);
+            if (existing.getStatus() != AppointmentStatus.CANCELLED) {
+                slotIndex.markBooked(existing.getDoctor().getId(), existing.getAppointmentTime());
+            }
+            Long doctorId = existing.getDoctor().getId();
+            LocalDateTime time = existing.getAppointmentTime();
+            TransactionHooks.afterCommit(() -> events.updated(oldDoctorId, oldTime, doctorId, time, existing.getId()));
+            response.put("message", "Appointment updated successfully");
+            return ResponseEntity.ok(response);
+        } catch (DataIntegrityViolationException e) {
+            // the new slot was booked concurrently and the unique key rejected the move
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            response.put("message", "Appointment already booked for given time or doctor not available");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            response.put("message", "Failed to update appointment");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Cancels (deletes) an appointment of the patient the token was issued to
+    @Transactional
+    public ResponseEntity<Map<String, String>> cancelAppointment(long id, String token) {
+        Map<String, String> response = new HashMap<>();
+        Appointment appointment = appointmentRepository.findById(id).orElse(null);
+        if (appointment == null) {
+            response.put("message", "Appointment not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        Long patientId = resolveUserId(token, "patient");
+        if (patientId == null || !patientId.equals(appointment.getPatient().getId())) {
+            response.put("message", "Unauthorized to cancel this appointment");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        try {
+            appointmentRepository.delete(appointment);
+            slotIndex.markFree(appointment.getDoctor().getId(), appointment.getAppointmentTime());
+            Long doctorId = appointment.getDoctor().getId();
+            TransactionHooks.afterCommit(() -> events.cancelled(doctorId, appointment.getAppointmentTime(), id));
+            response.put("message", "Appointment cancelled successfully");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("message", "Failed to cancel appointment");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Retrieves one page of the day's appointments of the doctor the token was issued to, optionally filtered by
+    // patient name, continuing after the given cursor (null for the first page)
+    @Transactional(readOnly = true)
+    public ResponseEntity<Map<String, Object>> getAppointments(String pname, LocalDate date, String token,
+                                                               String cursor, int size) {
+        Map<String, Object> response = new HashMap<>();
+        AppointmentCursor.Position position;
+        try {
+            position = AppointmentCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            response.put("error", "Invalid cursor");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        Long doctorId = resolveUserId(token, "doctor");
+        if (doctorId == null) {
+            response.put("appointments", List.of());
+            response.put("nextCursor", null);
+            return ResponseEntity.ok(response);
+        }
+        LocalDateTime start = date.atStartOfDay();
+        LocalDateTime end = date.plusDays(1).atStartOfDay().minusNanos(1);
+        boolean byPatientName = pname != null && !pname.isBlank() && !pname.equalsIgnoreCase("null");
+        List<AppointmentDTO> rows = byPatientName
+                ? appointmentRepository.findDoctorPageByPatientName(
+                        doctorId, pname, start, end, position.time(), position.id(), AppointmentCursor.limit(size))
+                : appointmentRepository.findDoctorPage(
+                        doctorId, start, end, position.time(), position.id(), AppointmentCursor.limit(size));
+        if (archiver.holdsAppointmentsFrom(position.time().isAfter(start) ? position.time() : start)) {
+            rows = AppointmentCursor.merge(rows, byPatientName
+                    ? archivedAppointmentRepository.findDoctorPageByPatientName(
+                            doctorId, pname, start, end, position.time(), position.id(), AppointmentCursor.limit(size))
+                    : archivedAppointmentRepository.findDoctorPage(
+                            doctorId, start, end, position.time(), position.id(), AppointmentCursor.limit(size)));
+        }
+        response.put("appointments", AppointmentCursor.page(rows, size));
+        response.put("nextCursor", AppointmentCursor.next(rows, size));
+        return ResponseEntity.ok(response);
+    }
+
+    // Updates the status of an appointment, freeing its slot when it is cancelled
+    @Transactional
+    public void changeStatus(long id, AppointmentStatus status) {
+        Appointment appointment = appointmentRepository.findById(id).orElse(null);
+        if (appointment == null) {
+            return;
+        }
+        AppointmentStatus previous = appointment.getStatus();
+        appointmentRepository.updateStatus(status, Appointment.activeSlotFor(status), id);
+        if (status == AppointmentStatus.CANCELLED && previous != AppointmentStatus.CANCELLED) {
+            slotIndex.markFree(appointment.getDoctor().getId(), appointment.getAppointmentTime());
+        } else if (status != AppointmentStatus.CANCELLED && previous == AppointmentStatus.CANCELLED) {
+            slotIndex.markBooked(appointment.getDoctor().getId(), appointment.getAppointmentTime());
+        }
+        Long doctorId = appointment.getDoctor().getId();
+        LocalDateTime time = appointment.getAppointmentTime();
+        TransactionHooks.afterCommit(() -> {
+            if (status == AppointmentStatus.CANCELLED) {
+                events.cancelled(doctorId, time, id);
+            } else {
+                events.updated(doctorId, time, doctorId, time, id);
+            }
+        });
+    }
+
+    // Opens the event stream of the day's appointment changes of the doctor the token was issued to:
+    // 401 if the doctor is unknown, 503 when too many streams are open
+    public ResponseEntity<SseEmitter> subscribeToSchedule(LocalDate date, String token) {
+        Long doctorId = resolveUserId(token, "doctor");
+        if (doctorId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        SseEmitter emitter = events.subscribe(doctorId, date);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    // Resolves the id of the token's user from the uid claim, falling back to an email lookup for older tokens
+    private Long resolveUserId(String token, String user) {
+        Long userId = tokenService.extractUserId(token);
+        if (userId != null) {
+            return userId;
+        }
+        String email = tokenService.extractEmail(token);
+        if (user.equals("doctor")) {
+            Doctor doctor = doctorRepository.findByEmail(email);
+            return doctor != null ? doctor.getId() : null;
+        }
+        Patient patient = patientRepository.findByEmail(email);
+        return patient != null ? patient.getId() : null;
+    }
+
+    // Inserts the accepted items as new scheduled appointments; Hibernate sends them as JDBC batches on flush
+    private List<Appointment> insertBatch(List<Appointment> appointments, List<Integer> accepted) {
+        List<Appointment> batch = new ArrayList<>(accepted.size());
+        for (int i : accepted) {
+            Appointment appointment = appointments.get(i);
+            batch.add(new Appointment(doctorRepository.getReferenceById(appointment.getDoctor().getId()),
+                    patientRepository.getReferenceById(appointment.getPatient().getId()),
+                    appointment.getAppointmentTime(), AppointmentStatus.SCHEDULED));
+        }
+        List<Appointment> saved = appointmentRepository.saveAll(batch);
+        appointmentRepository.flush();
+        for (Appointment appointment : saved) {
+            Long doctorId = appointment.getDoctor().getId();
+            slotIndex.markBooked(doctorId, appointment.getAppointmentTime());
+            TransactionHooks.afterCommit(() -> events.booked(doctorId, appointment.getAppointmentTime(), appointment.getId()));
+        }
+        return saved;
+    }
+
+    private Map<String, Object> batchResult(int index, HttpStatus status, String message, Long id) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("index", index);
+        result.put("status", status.value());
+        result.put("message", message);
+        if (id != null) {
+            result.put("id", id);
+        }
+        return result;
+    }
 
+    private int stripeOf(Long doctorId) {
+        return Math.floorMod(doctorId.hashCode(), bookingLocks.length);
+    }
 }
@@ -0,0 +1,134 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// In-memory index of booked appointment start times, one bitset of 1440 bits (a bit per minute of the day)
+// per doctor and date. Entries are built from a single SQL query on first use and then kept up to date by
+// AppointmentService after each booking, update, cancellation or status change commits.
+@Component
+public class AppointmentSlotIndex {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int WORDS_PER_DAY = (MINUTES_PER_DAY + 63) / 64;
+
+    private record Key(Long doctorId, LocalDate date) {
+    }
+
+    private final AppointmentRepository appointmentRepository;
+    private final int maxEntries;
+
+    // Access ordered so that the least recently used day is evicted first once the index is full
+    private final LinkedHashMap<Key, long[]> entries;
+
+    // Loads in progress; a change to the same day while loading discards the loaded (possibly stale) bitset
+    private final Map<Key, Object> pendingLoads = new HashMap<>();
+
+    public AppointmentSlotIndex(AppointmentRepository appointmentRepository,
+                                @Value("${appointment.slot-index.max-entries:50000}") int maxEntries) {
+        this.appointmentRepository = appointmentRepository;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, long[]> eldest) {
+                return size() > AppointmentSlotIndex.this.maxEntries;
+            }
+        };
+    }
+
+    // Returns true if a non-cancelled appointment of the doctor starts at the given time
+    public boolean isBooked(Long doctorId, LocalDateTime time) {
+        int minute = minuteOfDay(time);
+        long[] bits = load(new Key(doctorId, time.toLocalDate()));
+        return (bits[minute >>> 6] & (1L << minute)) != 0;
+    }
+
+    // Returns the booked start minutes (minute of day) of the doctor on the given date
+    public BitSet bookedMinutes(Long doctorId, LocalDate date) {
+        return BitSet.valueOf(load(new Key(doctorId, date)));
+    }
+
+    // Records a booked start time once the current transaction commits
+    public void markBooked(Long doctorId, LocalDateTime time) {
+        TransactionHooks.afterCommit(() -> update(doctorId, time, true));
+    }
+
+    // Records a freed start time once the current transaction commits
+    public void markFree(Long doctorId, LocalDateTime time) {
+        TransactionHooks.afterCommit(() -> update(doctorId, time, false));
+    }
+
+    // Drops every indexed day of a doctor once the current transaction commits
+    public void invalidateDoctor(Long doctorId) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (entries) {
+                entries.keySet().removeIf(key -> key.doctorId().equals(doctorId));
+                pendingLoads.keySet().removeIf(key -> key.doctorId().equals(doctorId));
+            }
+        });
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // Returns a copy of the day's bitset, loading it from the database on a miss
+    private long[] load(Key key) {
+        Object ticket = new Object();
+        synchronized (entries) {
+            long[] bits = entries.get(key);
+            if (bits != null) {
+                return bits.clone();
+            }
+            pendingLoads.put(key, ticket);
+        }
+        long[] bits = new long[WORDS_PER_DAY];
+        LocalDateTime start = key.date().atStartOfDay();
+        List<LocalDateTime> bookedTimes = appointmentRepository.findBookedTimesByDoctorIdBetween(
+                key.doctorId(), start, start.plusDays(1));
+        for (LocalDateTime time : bookedTimes) {
+            int minute = minuteOfDay(time);
+            bits[minute >>> 6] |= 1L << minute;
+        }
+        long[] copy = bits.clone();
+        synchronized (entries) {
+            if (pendingLoads.get(key) == ticket) {
+                pendingLoads.remove(key);
+                entries.put(key, bits);
+            }
+        }
+        return copy;
+    }
+
+    private void update(Long doctorId, LocalDateTime time, boolean booked) {
+        Key key = new Key(doctorId, time.toLocalDate());
+        int minute = minuteOfDay(time);
+        synchronized (entries) {
+            pendingLoads.remove(key);
+            long[] bits = entries.get(key);
+            if (bits == null) {
+                return;
+            }
+            if (booked) {
+                bits[minute >>> 6] |= 1L << minute;
+            } else {
+                bits[minute >>> 6] &= ~(1L << minute);
+            }
+        }
+    }
+
+    private static int minuteOfDay(LocalDateTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+}
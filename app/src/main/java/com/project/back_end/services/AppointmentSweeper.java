@@ -0,0 +1,104 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Marks scheduled appointments that have ended as COMPLETED, so that the past/future filters are not stale.
+// Each run walks the (status, appointment_time) index in chunks of chunk-size rows, each chunk in its own short
+// transaction, so row locks are only held for one chunk. The remaining work is simply the SCHEDULED rows that
+// ended before the run started: a run that stops midway keeps its committed chunks and the next run resumes.
+// Rows, chunks and duration of each run are published as appointment.sweeper.* metrics.
+@Component
+public class AppointmentSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentSweeper.class);
+
+    // Appointments last one hour (see AppointmentDTO.getEndTime)
+    private static final Duration APPOINTMENT_LENGTH = Duration.ofHours(1);
+
+    private final AppointmentRepository appointmentRepository;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+
+    private final DistributionSummary rowsPerRun;
+    private final DistributionSummary chunksPerRun;
+    private final Counter completed;
+    private final Counter failures;
+    private final Timer runDuration;
+
+    public AppointmentSweeper(AppointmentRepository appointmentRepository,
+                              PlatformTransactionManager transactionManager,
+                              ObjectProvider<MeterRegistry> meterRegistry,
+                              @Value("${appointment.sweeper.chunk-size:500}") int chunkSize) {
+        this.appointmentRepository = appointmentRepository;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setTimeout(30);
+        this.chunkSize = Math.max(chunkSize, 1);
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.rowsPerRun = DistributionSummary.builder("appointment.sweeper.rows")
+                .description("Appointments marked completed per run").register(registry);
+        this.chunksPerRun = DistributionSummary.builder("appointment.sweeper.chunks")
+                .description("Chunks committed per run").register(registry);
+        this.completed = Counter.builder("appointment.sweeper.completed")
+                .description("Appointments marked completed").register(registry);
+        this.failures = Counter.builder("appointment.sweeper.failures")
+                .description("Runs stopped by an error").register(registry);
+        this.runDuration = Timer.builder("appointment.sweeper.duration")
+                .description("Duration of a run").register(registry);
+    }
+
+    @Scheduled(initialDelayString = "${appointment.sweeper.initial-delay:PT1M}",
+            fixedDelayString = "${appointment.sweeper.interval:PT5M}")
+    public void sweep() {
+        sweep(LocalDateTime.now());
+    }
+
+    // Marks the appointments that ended before now as COMPLETED; returns the number of rows changed
+    public int sweep(LocalDateTime now) {
+        LocalDateTime cutoff = now.minus(APPOINTMENT_LENGTH);
+        long started = System.nanoTime();
+        int rows = 0;
+        int chunks = 0;
+        try {
+            while (true) {
+                Integer changed = chunkTransaction.execute(status -> {
+                    List<Long> ids = appointmentRepository.findScheduledIdsBefore(cutoff, Limit.of(chunkSize));
+                    return ids.isEmpty() ? null : appointmentRepository.completeScheduled(ids, now);
+                });
+                if (changed == null) {
+                    break;
+                }
+                rows += changed;
+                chunks++;
+                completed.increment(changed);
+            }
+        } catch (Exception e) {
+            failures.increment();
+            logger.error("Appointment sweep stopped after {} chunks, the next run resumes", chunks, e);
+        }
+        rowsPerRun.record(rows);
+        chunksPerRun.record(chunks);
+        runDuration.record(Duration.ofNanos(System.nanoTime() - started));
+        if (rows > 0) {
+            logger.info("Marked {} ended appointments completed in {} chunks", rows, chunks);
+        }
+        return rows;
+    }
+}
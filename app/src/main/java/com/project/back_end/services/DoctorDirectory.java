@@ -0,0 +1,86 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.repo.DoctorRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Pre-serialized JSON of the doctor list served by GET /doctor. The directory changes rarely, so the
+// response body is built once per version and reused; DoctorService bumps the version after a doctor is
+// saved, updated or deleted, and the next request rebuilds the snapshot. The strong ETag is a hash of the
+// body, so it stays valid across restarts as long as the directory itself has not changed.
+@Component
+public class DoctorDirectory {
+
+    public record Snapshot(long version, String etag, byte[] json) {
+    }
+
+    private final DoctorRepository doctorRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final AtomicLong version = new AtomicLong();
+    // Serializes rebuilds; not a monitor, so that a virtual thread waiting on the query does not pin its carrier
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    public DoctorDirectory(DoctorRepository doctorRepository, ObjectMapper objectMapper,
+                           PlatformTransactionManager transactionManager) {
+        this.doctorRepository = doctorRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // Returns the snapshot of the current version, rebuilding it if the directory changed since the last build
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && current.version() == version.get()) {
+            return current;
+        }
+        rebuildLock.lock();
+        try {
+            long target = version.get();
+            if (snapshot == null || snapshot.version() != target) {
+                // serialized inside the transaction so that lazy associations can still be loaded
+                byte[] json = readOnlyTransaction.execute(status ->
+                        serialize(Map.of("doctors", doctorRepository.findAllWithAvailableTimes())));
+                snapshot = new Snapshot(target, etagOf(json), json);
+            }
+            return snapshot;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Marks the snapshot as stale once the current transaction commits
+    public void invalidate() {
+        TransactionHooks.afterCommit(version::incrementAndGet);
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the doctor directory", e);
+        }
+    }
+
+    private static String etagOf(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Hard-deletes soft-deleted doctors in the background. Their appointments, in the appointment table and in the
+// archive, are deleted by id in chunks of chunk-size rows, each chunk in its own short transaction followed by a
+// pause, and the doctor row goes last. A single purge thread handles one doctor at a time, so a purge adds at most
+// one small transaction at a time next to the booking traffic. The soft delete flag is the durable record of the
+// work left: doctors still flagged when the application starts are purged again, and a failed purge can be queued
+// again by deleting the doctor once more (see retryFailed).
+@Component
+public class DoctorPurger {
+
+    private static final Logger logger = LoggerFactory.getLogger(DoctorPurger.class);
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    // Progress of one doctor's purge, as reported by the progress endpoint
+    private static final class Progress {
+        private final Long doctorId;
+        private final AtomicLong deleted = new AtomicLong();
+        private volatile State state = State.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        private Progress(Long doctorId) {
+            this.doctorId = doctorId;
+        }
+    }
+
+    private final AppointmentRepository appointmentRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final DoctorRepository doctorRepository;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+    private final Duration pause;
+
+    private final Map<Long, Progress> purges = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "doctor-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DoctorPurger(AppointmentRepository appointmentRepository,
+                        ArchivedAppointmentRepository archivedAppointmentRepository,
+                        DoctorRepository doctorRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${doctor.purge.chunk-size:500}") int chunkSize,
+                        @Value("${doctor.purge.pause:PT0.1S}") String pause) {
+        this.appointmentRepository = appointmentRepository;
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.doctorRepository = doctorRepository;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setTimeout(30);
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.pause = Duration.parse(pause);
+    }
+
+    // Queues the purge of a soft-deleted doctor; a purge already queued or running for the doctor is kept
+    public void purge(Long doctorId) {
+        Progress progress = new Progress(doctorId);
+        Progress existing = purges.putIfAbsent(doctorId, progress);
+        if (existing != null) {
+            if (existing.state != State.DONE && existing.state != State.FAILED) {
+                return;
+            }
+            purges.put(doctorId, progress);
+        }
+        executor.execute(() -> run(progress));
+    }
+
+    // Queues the purge of a soft-deleted doctor again if its last purge failed; returns false if it did not
+    public boolean retryFailed(Long doctorId) {
+        Progress existing = purges.get(doctorId);
+        if (existing == null || existing.state != State.FAILED) {
+            return false;
+        }
+        logger.info("Retrying the failed purge of deleted doctor {}", doctorId);
+        purge(doctorId);
+        return true;
+    }
+
+    // Returns the progress of a doctor's purge, or null if none was started since the application started
+    public Map<String, Object> progress(Long doctorId) {
+        Progress progress = purges.get(doctorId);
+        if (progress == null) {
+            return null;
+        }
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("doctorId", progress.doctorId);
+        view.put("state", progress.state);
+        view.put("deletedAppointments", progress.deleted.get());
+        view.put("startedAt", progress.startedAt);
+        view.put("finishedAt", progress.finishedAt);
+        view.put("error", progress.error);
+        return view;
+    }
+
+    // Resumes the purges that a previous run of the application did not finish
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        for (Long doctorId : doctorRepository.findSoftDeletedIds()) {
+            logger.info("Resuming the purge of deleted doctor {}", doctorId);
+            purge(doctorId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(Progress progress) {
+        progress.state = State.RUNNING;
+        progress.startedAt = LocalDateTime.now();
+        try {
+            deleteInChunks(progress, limit -> appointmentRepository.findIdsByDoctorId(progress.doctorId, limit),
+                    appointmentRepository::deleteByIds);
+            deleteInChunks(progress, limit -> archivedAppointmentRepository.findIdsByDoctorId(progress.doctorId, limit),
+                    archivedAppointmentRepository::deleteByIds);
+            chunkTransaction.executeWithoutResult(status -> {
+                doctorRepository.deleteAvailableTimes(progress.doctorId);
+                doctorRepository.deleteSoftDeleted(progress.doctorId);
+            });
+            progress.state = State.DONE;
+            logger.info("Purged deleted doctor {} and {} appointments", progress.doctorId, progress.deleted.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.error = "Interrupted";
+            progress.state = State.FAILED;
+        } catch (Exception e) {
+            logger.error("Purge of deleted doctor {} failed, it is retried on the next delete or start", progress.doctorId, e);
+            progress.error = e.getMessage();
+            progress.state = State.FAILED;
+        } finally {
+            progress.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    // Deletes the rows returned by findIds chunk after chunk until none are left, pausing between chunks
+    private void deleteInChunks(Progress progress, Function<Limit, List<Long>> findIds,
+                                Function<List<Long>, Integer> deleteIds) throws InterruptedException {
+        while (true) {
+            Integer deleted = chunkTransaction.execute(status -> {
+                List<Long> ids = findIds.apply(Limit.of(chunkSize));
+                return ids.isEmpty() ? null : deleteIds.apply(ids);
+            });
+            if (deleted == null) {
+                return;
+            }
+            progress.deleted.addAndGet(deleted);
+            Thread.sleep(pause.toMillis());
+        }
+    }
+}
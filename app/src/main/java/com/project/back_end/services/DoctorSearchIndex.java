@@ -0,0 +1,194 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.SlotSchedule;
+import com.project.back_end.repo.DoctorRepository;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+// In-process search index over the doctor directory. Names are normalized (lower case, accents and extra
+// spaces removed) and indexed by trigram, so a "name contains" search intersects a few posting lists instead
+// of running a leading-wildcard LIKE over the doctor table. Specialty and AM/PM availability are kept as
+// bitsets over the same positions. The index is loaded on first use and then updated by DoctorService
+// after doctors are saved, updated or deleted.
+@Component
+public class DoctorSearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private record Entry(Long id, String name, String specialty, boolean am, boolean pm) {
+    }
+
+    // Immutable view used by searches; replaced as a whole whenever the directory changes
+    private static final class Snapshot {
+        private final Long[] ids;
+        private final String[] names;
+        private final Map<String, int[]> trigrams = new HashMap<>();
+        private final Map<String, BitSet> specialties = new HashMap<>();
+        private final BitSet am = new BitSet();
+        private final BitSet pm = new BitSet();
+
+        private Snapshot(List<Entry> entries) {
+            ids = new Long[entries.size()];
+            names = new String[entries.size()];
+            Map<String, List<Integer>> postings = new HashMap<>();
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                ids[i] = entry.id();
+                names[i] = entry.name();
+                for (String trigram : trigramsOf(entry.name())) {
+                    List<Integer> positions = postings.computeIfAbsent(trigram, key -> new ArrayList<>());
+                    if (positions.isEmpty() || positions.get(positions.size() - 1) != i) {
+                        positions.add(i);
+                    }
+                }
+                specialties.computeIfAbsent(entry.specialty(), key -> new BitSet()).set(i);
+                am.set(i, entry.am());
+                pm.set(i, entry.pm());
+            }
+            postings.forEach((trigram, positions) ->
+                    trigrams.put(trigram, positions.stream().mapToInt(Integer::intValue).toArray()));
+        }
+    }
+
+    private final DoctorRepository doctorRepository;
+
+    // Entries by doctor id, ordered so that search results come back in id order; guarded by lock, which is not a
+    // monitor because the first load queries the database and a virtual thread must not pin its carrier meanwhile
+    private final ReentrantLock lock = new ReentrantLock();
+    private TreeMap<Long, Entry> entries;
+    private volatile Snapshot snapshot;
+
+    public DoctorSearchIndex(DoctorRepository doctorRepository) {
+        this.doctorRepository = doctorRepository;
+    }
+
+    // Returns the ids of the doctors matching every provided filter; null filters are ignored.
+    // The name matches anywhere in the doctor's name, the specialty matches exactly, both ignoring case and accents.
+    public List<Long> search(String name, String specialty, String amOrPm) {
+        Snapshot current = snapshot();
+        BitSet matches = new BitSet(current.ids.length);
+        matches.set(0, current.ids.length);
+        if (specialty != null) {
+            BitSet bySpecialty = current.specialties.get(normalize(specialty));
+            if (bySpecialty == null) {
+                return List.of();
+            }
+            matches.and(bySpecialty);
+        }
+        if (amOrPm != null) {
+            matches.and("AM".equalsIgnoreCase(amOrPm) ? current.am : current.pm);
+        }
+        String query = name != null ? normalize(name) : null;
+        // queries shorter than a trigram are not narrowed down; the substring check below scans the candidates
+        if (query != null && !query.isEmpty()) {
+            for (String trigram : trigramsOf(query)) {
+                int[] positions = current.trigrams.get(trigram);
+                if (positions == null) {
+                    return List.of();
+                }
+                BitSet byTrigram = new BitSet(current.ids.length);
+                for (int position : positions) {
+                    byTrigram.set(position);
+                }
+                matches.and(byTrigram);
+            }
+        }
+        List<Long> ids = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            // trigrams only narrow the candidates, the substring check decides
+            if (query == null || current.names[i].contains(query)) {
+                ids.add(current.ids[i]);
+            }
+        }
+        return ids;
+    }
+
+    // Adds or replaces a doctor once the current transaction commits
+    public void put(Doctor doctor) {
+        Entry entry = entryOf(doctor);
+        TransactionHooks.afterCommit(() -> {
+            lock.lock();
+            try {
+                if (entries != null) {
+                    entries.put(entry.id(), entry);
+                    snapshot = new Snapshot(new ArrayList<>(entries.values()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    // Removes a doctor once the current transaction commits
+    public void remove(Long doctorId) {
+        TransactionHooks.afterCommit(() -> {
+            lock.lock();
+            try {
+                if (entries != null && entries.remove(doctorId) != null) {
+                    snapshot = new Snapshot(new ArrayList<>(entries.values()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        lock.lock();
+        try {
+            if (snapshot == null) {
+                entries = new TreeMap<>();
+                for (Doctor doctor : doctorRepository.findAllWithAvailableTimes()) {
+                    entries.put(doctor.getId(), entryOf(doctor));
+                }
+                snapshot = new Snapshot(new ArrayList<>(entries.values()));
+            }
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Entry entryOf(Doctor doctor) {
+        SlotSchedule schedule = doctor.getSlotSchedule();
+        return new Entry(doctor.getId(), normalize(doctor.getName()), normalize(doctor.getSpecialty()),
+                schedule.hasAm(), schedule.hasPm());
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String withoutMarks = MARKS.matcher(decomposed).replaceAll("");
+        return SPACES.matcher(withoutMarks.toLowerCase(Locale.ROOT).trim()).replaceAll(" ");
+    }
+
+    // Trigrams of a normalized string; none for strings shorter than three characters
+    private static List<String> trigramsOf(String text) {
+        if (text.length() < 3) {
+            return List.of();
+        }
+        List<String> trigrams = new ArrayList<>(text.length() - 2);
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+}
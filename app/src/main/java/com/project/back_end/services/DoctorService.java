@@ -1,92 +1,224 @@
 package com.project.back_end.services;
 
+import com.project.back_end.DTO.DoctorCardDTO;
+import com.project.back_end.DTO.Login;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.SlotSchedule;
+import com.project.back_end.repo.DoctorRepository;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+@Service
 public class DoctorService {
 
-// 1. **Add @Service Annotation**:
-//    - This class should be annotated with `@Service` to indicate that it is a service layer class.
-//    - The `@Service` annotation marks this class as a Spring-managed bean for business logic.
-//    - Instruction: Add `@Service` above the class declaration.
-
-// 2. **Constructor Injection for Dependencies**:
-//    - The `DoctorService` class depends on `DoctorRepository`, `AppointmentRepository`, and `TokenService`.
-//    - These dependencies should be injected via the constructor for proper dependency management.
-//    - Instruction: Ensure constructor injection is used for injecting dependencies into the service.
-
-// 3. **Add @Transactional Annotation for Methods that Modify or Fetch Database Data**:
-//    - Methods like `getDoctorAvailability`, `getDoctors`, `findDoctorByName`, `filterDoctorsBy*` should be annotated with `@Transactional`.
-//    - The `@Transactional` annotation ensures that database operations are consistent and wrapped in a single transaction.
-//    - Instruction: Add the `@Transactional` annotation above the methods that perform database operations or queries.
-
-// 4. **getDoctorAvailability Method**:
-//    - Retrieves the available time slots for a specific doctor on a particular date and filters out already booked slots.
-//    - The method fetches all appointments for the doctor on the given date and calculates the availability by comparing against booked slots.
-//    - Instruction: Ensure that the time slots are properly formatted and the available slots are correctly filtered.
-
-// 5. **saveDoctor Method**:
-//    - Used to save a new doctor record in the database after checking if a doctor with the same email already exists.
-//    - If a doctor with the same email is found, it returns `-1` to indicate conflict; `1` for success, and `0` for internal errors.
-//    - Instruction: Ensure that the method correctly handles conflicts and exceptions when saving a doctor.
-
-// 6. **updateDoctor Method**:
-//    - Updates an existing doctor's details in the database. If the doctor doesn't exist, it returns `-1`.
-//    - Instruction: Make sure that the doctor exists before attempting to save the updated record and handle any errors properly.
-
-// 7. **getDoctors Method**:
-//    - Fetches all doctors from the database. It is marked with `@Transactional` to ensure that the collection is properly loaded.
-//    - Instruction: Ensure that the collection is eagerly loaded, especially if dealing with lazy-loaded relationships (e.g., available times). 
-
-// 8. **deleteDoctor Method**:
-//    - Deletes a doctor from the system along with all appointments associated with that doctor.
-//    - It first checks if the doctor exists. If not, it returns `-1`; otherwise, it deletes the doctor and their appointments.
-//    - Instruction: Ensure the doctor and their appointments are deleted properly, with error handling for internal issues.
-
-// 9. **validateDoctor Method**:
-//    - Validates a doctor's login by checking if the email and password match an existing doctor record.
-//    - It generates a token for the doctor if the login is successful, otherwise returns an error message.
-//    - Instruction: Make sure to handle invalid login attempts and password mismatches properly with error responses.
-
-// 10. **findDoctorByName Method**:
-//    - Finds doctors based on partial name matching and returns the list of doctors with their available times.
-//    - This method is annotated with `@Transactional` to ensure that the database query and data retrieval are properly managed within a transaction.
-//    - Instruction: Ensure that available times are eagerly loaded for the doctors.
-
-
-// 11. **filterDoctorsByNameSpecilityandTime Method**:
-//    - Filters doctors based on their name, specialty, and availability during a specific time (AM/PM).
-//    - The method fetches doctors matching the name and specialty criteria, then filters them based on their availability during the specified time period.
-//    - Instruction: Ensure proper filtering based on both the name and specialty as well as the specified time period.
-
-// 12. **filterDoctorByTime Method**:
-//    - Filters a list of doctors based on whether their available times match the specified time period (AM/PM).
-//    - This method processes a list of doctors and their available times to return those that fit the time criteria.
-//    - Instruction: Ensure that the time filtering logic correctly handles both AM and PM time slots and edge cases.
-
-
-// 13. **filterDoctorByNameAndTime Method**:
-//    - Filters doctors based on their name and the specified time period (AM/PM).
-//    - Fetches doctors based on partial name matching and filters the results to include only those available during the specified time period.
-//    - Instruction: Ensure that the method correctly filters doctors based on the given name and time of day (AM/PM).
-
-// 14. **filterDoctorByNameAndSpecility Method**:
-//    - Filters doctors by name and specialty.
-//    - It ensures that the resulting list of doctors matches both the name (case-insensitive) and the specified specialty.
-//    - Instruction: Ensure that both name and specialty are considered when filtering doctors.
-
-
-// 15. **filterDoctorByTimeAndSpecility Method**:
-//    - Filters doctors based on their specialty and availability during a specific time period (AM/PM).
-//    - Fetches doctors based on the specified specialty and filters them based on their available time slots for AM/PM.
-//    - Instruction: Ensure the time filtering is accurately applied based on the given specialty and time period (AM/PM).
-
-// 16. **filterDoctorBySpecility Method**:
-//    - Filters doctors based on their specialty.
-//    - This method fetches all doctors matching the specified specialty and returns them.
-//    - Instruction: Make sure the filtering logic works for case-insensitive specialty matching.
-
-// 17. **filterDoctorsByTime Method**:
-//    - Filters all doctors based on their availability during a specific time period (AM/PM).
-//    - The method checks all doctors' available times and returns those available during the specified time period.
-//    - Instruction: Ensure proper filtering logic to handle AM/PM time periods.
-
-   
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final DoctorRepository doctorRepository;
+    private final TokenService tokenService;
+    private final PasswordService passwordService;
+    private final AppointmentSlotIndex slotIndex;
+    private final DoctorSearchIndex searchIndex;
+    private final DoctorDirectory directory;
+    private final DoctorPurger purger;
+
+    public DoctorService(DoctorRepository doctorRepository,
+                         TokenService tokenService,
+                         PasswordService passwordService,
+                         AppointmentSlotIndex slotIndex,
+                         DoctorSearchIndex searchIndex,
+                         DoctorDirectory directory,
+                         DoctorPurger purger) {
+        this.doctorRepository = doctorRepository;
+        this.tokenService = tokenService;
+        this.passwordService = passwordService;
+        this.slotIndex = slotIndex;
+        this.searchIndex = searchIndex;
+        this.directory = directory;
+        this.purger = purger;
+    }
+
+    // Returns the doctor's time slots on the given date that are not already booked,
+    // checked against the in-memory slot index instead of the day's appointments
+    @Transactional(readOnly = true)
+    public List<String> getDoctorAvailability(Long doctorId, LocalDate date) {
+        Doctor doctor = doctorRepository.findWithAvailableTimesById(doctorId).orElse(null);
+        if (doctor == null) {
+            return List.of();
+        }
+        SlotSchedule schedule = doctor.getSlotSchedule();
+        BitSet bookedMinutes = slotIndex.bookedMinutes(doctorId, date);
+        List<String> available = new ArrayList<>(schedule.size());
+        for (int i = 0; i < schedule.size(); i++) {
+            if (!bookedMinutes.get(schedule.startMinute(i))) {
+                available.add(schedule.label(i));
+            }
+        }
+        return available;
+    }
+
+    // Saves a new doctor: -1 if the email is already registered, 1 on success,
+    // -2 if the hashing executor is saturated, 0 on internal error
+    public int saveDoctor(Doctor doctor) {
+        try {
+            if (doctorRepository.findByEmail(doctor.getEmail()) != null) {
+                return -1;
+            }
+            doctor.setPassword(passwordService.encode(doctor.getPassword()).join());
+            searchIndex.put(doctorRepository.save(doctor));
+            directory.invalidate();
+            return 1;
+        } catch (Exception e) {
+            return PasswordService.isOverloaded(e) ? -2 : 0;
+        }
+    }
+
+    // Updates an existing doctor: -1 if the doctor does not exist, 1 on success,
+    // -2 if the hashing executor is saturated, 0 on internal error.
+    // The password is only hashed when a new one is given; the stored hash sent back unchanged (or any bcrypt hash)
+    // keeps the current password.
+    public int updateDoctor(Doctor doctor) {
+        try {
+            Doctor existing = doctor.getId() != null ? doctorRepository.findById(doctor.getId()).orElse(null) : null;
+            if (existing == null) {
+                return -1;
+            }
+            String password = doctor.getPassword();
+            if (password == null || password.isBlank() || password.equals(existing.getPassword())
+                    || PasswordService.isHashed(password)) {
+                doctor.setPassword(existing.getPassword());
+            } else {
+                doctor.setPassword(passwordService.encode(password).join());
+            }
+            searchIndex.put(doctorRepository.save(doctor));
+            directory.invalidate();
+            return 1;
+        } catch (Exception e) {
+            return PasswordService.isOverloaded(e) ? -2 : 0;
+        }
+    }
+
+    // Returns the pre-serialized doctor list together with its ETag
+    public DoctorDirectory.Snapshot getDoctorDirectory() {
+        return directory.current();
+    }
+
+    // Deletes a doctor: the doctor is soft-deleted at once, which hides them from listings, logins and bookings,
+    // and their appointments and row are removed by the background purge.
+    // Returns 1 on success, -1 if the doctor does not exist, 0 on internal error
+    @Transactional
+    public int deleteDoctor(long id) {
+        try {
+            if (doctorRepository.softDelete(id) == 0) {
+                // already deleted: a purge that failed is queued again, so it does not wait for a restart
+                return purger.retryFailed(id) ? 1 : -1;
+            }
+            // after commit, or a concurrent validation could still see the doctor and cache the token again
+            TransactionHooks.afterCommit(() -> tokenService.invalidateUser("doctor", id));
+            slotIndex.invalidateDoctor(id);
+            searchIndex.remove(id);
+            directory.invalidate();
+            TransactionHooks.afterCommit(() -> purger.purge(id));
+            return 1;
+        } catch (Exception e) {
+            // a failed statement may already have marked the transaction rollback-only; rolling back here keeps the
+            // commit from throwing UnexpectedRollbackException past the error code
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return 0;
+        }
+    }
+
+    // Returns the progress of the purge of a deleted doctor, or null if none is known
+    public Map<String, Object> getPurgeProgress(long id) {
+        return purger.progress(id);
+    }
+
+    // Validates a doctor's login credentials and returns a token on success.
+    // The password check runs on the hashing executor; 503 is returned when it is saturated.
+    public CompletableFuture<ResponseEntity<Map<String, String>>> validateDoctor(Login login) {
+        try {
+            Doctor doctor = doctorRepository.findByEmail(login.getEmail());
+            if (doctor == null) {
+                return CompletableFuture.completedFuture(loginRejected());
+            }
+            return passwordService.verify(login.getPassword(), doctor.getPassword(),
+                            hash -> doctorRepository.updatePassword(doctor.getId(), hash))
+                    .thenApply(matches -> {
+                        if (!matches) {
+                            return loginRejected();
+                        }
+                        Map<String, String> response = new HashMap<>();
+                        response.put("token", tokenService.generateToken(doctor.getEmail(), "doctor", doctor.getId()));
+                        return ResponseEntity.ok(response);
+                    })
+                    .exceptionally(this::loginFailed);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(loginFailed(e));
+        }
+    }
+
+    // Filters doctors by any combination of name, specialty and AM/PM availability; null filters are ignored.
+    // Matching ids come from the search index, then one query loads the card columns of the requested page only.
+    @Transactional(readOnly = true)
+    public Map<String, Object> filterDoctors(String name, String specialty, String amOrPm, int page, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int pageNumber = Math.max(page, 0);
+        List<Long> ids = searchIndex.search(name, specialty, amOrPm);
+        int from = (int) Math.min((long) pageNumber * pageSize, ids.size());
+        List<Long> pageIds = ids.subList(from, Math.min(from + pageSize, ids.size()));
+
+        Map<Long, DoctorCardDTO> cards = new LinkedHashMap<>();
+        pageIds.forEach(id -> cards.put(id, null));
+        if (!pageIds.isEmpty()) {
+            for (Object[] row : doctorRepository.findCardRowsByIdIn(pageIds)) {
+                Long id = (Long) row[0];
+                DoctorCardDTO card = cards.get(id);
+                if (card == null) {
+                    card = new DoctorCardDTO(id, (String) row[1], (String) row[2], (String) row[3]);
+                    cards.put(id, card);
+                }
+                if (row[4] != null) {
+                    card.getAvailability().add((String) row[4]);
+                }
+            }
+        }
+        // doctors deleted since the index lookup have no rows
+        cards.values().removeIf(Objects::isNull);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("doctors", new ArrayList<>(cards.values()));
+        response.put("page", pageNumber);
+        response.put("size", pageSize);
+        response.put("total", ids.size());
+        return response;
+    }
+
+    private ResponseEntity<Map<String, String>> loginRejected() {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", "Invalid email or password");
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+    }
+
+    private ResponseEntity<Map<String, String>> loginFailed(Throwable error) {
+        Map<String, String> response = new HashMap<>();
+        if (PasswordService.isOverloaded(error)) {
+            response.put("error", "Too many login attempts, please try again shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+        }
+        response.put("error", "Internal server error");
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
 }
@@ -0,0 +1,238 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.Prescription;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Compliance exports of the appointment history and of the prescriptions, as NDJSON (one JSON object per line) or
+// CSV. Rows are read from a database cursor and written to the response as they arrive, so an export of millions of
+// rows runs in constant heap and the first bytes go out right away: appointments come from a JPA result stream of
+// AppointmentDTO projections (no managed entities pile up in the persistence context) read with the configured JDBC
+// fetch size, first from the archive, then from the appointment table; prescriptions come from a MongoDB cursor.
+// An appointment export holds a pooled database connection (and its connection gate permit) until the last row is
+// written, which can take as long as the async request timeout; at most max-concurrent of them run at once, so
+// that the rest of the pool stays available to requests, and further ones are refused with 503.
+@org.springframework.stereotype.Service
+public class ExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(String mediaType, String extension) {
+            this.mediaType = MediaType.parseMediaType(mediaType);
+            this.extension = extension;
+        }
+
+        // Parses a format name, ignoring case; null if unknown
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final List<String> APPOINTMENT_COLUMNS = List.of("id", "doctorId", "doctorName", "patientId",
+            "patientName", "patientEmail", "patientPhone", "patientAddress", "appointmentTime", "status");
+    private static final List<String> PRESCRIPTION_COLUMNS = List.of("id", "appointmentId", "patientName",
+            "doctorName", "medication", "dosage", "doctorNotes", "refillCount", "pharmacyName");
+
+    // Rows between two flushes of the response; the first flush follows the header or the first row
+    private static final int FLUSH_EVERY = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final EntityManager entityManager;
+    private final PrescriptionRepository prescriptionRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate exportTransaction;
+    private final int fetchSize;
+    private final Semaphore databaseExports;
+
+    public ExportService(EntityManager entityManager,
+                         PrescriptionRepository prescriptionRepository,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${export.jdbc.fetch-size:1000}") int fetchSize,
+                         @Value("${export.max-concurrent:2}") int maxConcurrent) {
+        this.entityManager = entityManager;
+        this.prescriptionRepository = prescriptionRepository;
+        this.objectMapper = objectMapper;
+        this.exportTransaction = new TransactionTemplate(transactionManager);
+        this.exportTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+        this.databaseExports = new Semaphore(Math.max(maxConcurrent, 1));
+    }
+
+    // Streams the appointments that start within [from, to] (both optional, inclusive dates)
+    public ResponseEntity<StreamingResponseBody> exportAppointments(String format, LocalDate from, LocalDate to) {
+        Format parsed = Format.of(format);
+        if (parsed == null) {
+            return error(HttpStatus.BAD_REQUEST, "Unknown export format " + format + ", use ndjson or csv");
+        }
+        LocalDateTime start = from != null ? from.atStartOfDay() : LocalDateTime.of(1000, 1, 1, 0, 0);
+        LocalDateTime end = to != null ? to.plusDays(1).atStartOfDay() : LocalDateTime.of(9999, 12, 31, 0, 0);
+        String range = "WHERE a.appointmentTime >= :start AND a.appointmentTime < :end ORDER BY a.appointmentTime, a.id";
+        if (!databaseExports.tryAcquire()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(errorBody("Too many exports running, please try again later"));
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                databaseExports.release();
+            }
+        };
+        return stream("appointments", parsed, APPOINTMENT_COLUMNS, release, out -> exportTransaction.executeWithoutResult(status -> {
+            for (String select : List.of(ArchivedAppointmentRepository.DTO_SELECT, AppointmentRepository.DTO_SELECT)) {
+                try (Stream<AppointmentDTO> rows = entityManager.createQuery(select + range, AppointmentDTO.class)
+                        .setParameter("start", start)
+                        .setParameter("end", end)
+                        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true)
+                        .getResultStream()) {
+                    rows.forEach(appointment -> out.write(parsed == Format.NDJSON ? appointment : Arrays.asList(
+                            appointment.getId(), appointment.getDoctorId(), appointment.getDoctorName(),
+                            appointment.getPatientId(), appointment.getPatientName(), appointment.getPatientEmail(),
+                            appointment.getPatientPhone(), appointment.getPatientAddress(),
+                            appointment.getAppointmentTime(), appointment.getStatus())));
+                }
+            }
+        }));
+    }
+
+    // Streams every prescription
+    public ResponseEntity<StreamingResponseBody> exportPrescriptions(String format) {
+        Format parsed = Format.of(format);
+        if (parsed == null) {
+            return error(HttpStatus.BAD_REQUEST, "Unknown export format " + format + ", use ndjson or csv");
+        }
+        return stream("prescriptions", parsed, PRESCRIPTION_COLUMNS, () -> {
+        }, out -> {
+            try (Stream<Prescription> rows = prescriptionRepository.streamAllBy()) {
+                rows.forEach(prescription -> out.write(parsed == Format.NDJSON ? prescription : Arrays.asList(
+                        prescription.getId(), prescription.getAppointmentId(), prescription.getPatientName(),
+                        prescription.getDoctorName(), prescription.getMedication(), prescription.getDosage(),
+                        prescription.getDoctorNotes(), prescription.getRefillCount(), prescription.getPharmacyName())));
+            }
+        });
+    }
+
+    // Writes the rows passed to it in the export's format
+    private interface RowWriter {
+        // A CSV row is a list of values in column order, an NDJSON row any object
+        void write(Object row);
+    }
+
+    // Builds the streamed response of an export; onEnd runs once the body has been written or has failed
+    private ResponseEntity<StreamingResponseBody> stream(String name, Format format, List<String> columns,
+                                                         Runnable onEnd, Consumer<RowWriter> export) {
+        StreamingResponseBody body = response -> {
+            try {
+                writeRows(response, format, columns, export);
+            } finally {
+                onEnd.run();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(format.mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + name + "-" + LocalDate.now() + "." + format.extension + "\"")
+                .body(body);
+    }
+
+    private void writeRows(OutputStream response, Format format, List<String> columns, Consumer<RowWriter> export)
+            throws IOException {
+        OutputStream out = new BufferedOutputStream(response, BUFFER_SIZE);
+        long[] rows = {0};
+        if (format == Format.CSV) {
+            writeCsvLine(out, columns);
+            out.flush();
+        }
+        try {
+            export.accept(row -> {
+                try {
+                    if (format == Format.CSV) {
+                        writeCsvLine(out, (List<?>) row);
+                    } else {
+                        out.write(objectMapper.writeValueAsBytes(row));
+                        out.write('\n');
+                    }
+                    if (++rows[0] % FLUSH_EVERY == 1) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // the client went away; the cursor was closed when the export stream ended
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    private ResponseEntity<StreamingResponseBody> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorBody(message));
+    }
+
+    private StreamingResponseBody errorBody(String message) {
+        return out -> out.write(objectMapper.writeValueAsBytes(Map.of("error", message)));
+    }
+
+    // Writes one CSV record (RFC 4180): values containing a comma, quote or line break are quoted, quotes doubled
+    private static void writeCsvLine(OutputStream out, List<?> values) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = values.get(i);
+            String text = value == null ? "" : value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                line.append('"').append(text.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(text);
+            }
+        }
+        line.append("\r\n");
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
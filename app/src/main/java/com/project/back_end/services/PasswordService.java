@@ -0,0 +1,103 @@
+package com.project.back_end.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Hashes and verifies passwords with bcrypt on a dedicated, bounded executor so that a burst of logins
+// cannot tie up the request threads. When every hashing thread is busy and the queue is full, the returned
+// future fails with a RejectedExecutionException, which callers answer with 503 Service Unavailable.
+@Service
+public class PasswordService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordService.class);
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+
+    public PasswordService(@Value("${password.bcrypt.strength:10}") int strength,
+                           @Value("${password.hashing.threads:0}") int threads,
+                           @Value("${password.hashing.queue-capacity:64}") int queueCapacity) {
+        this.encoder = new BCryptPasswordEncoder(strength);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Hashes a new password
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    // Checks a password against the stored value. When it matches and the stored value is a plaintext
+    // password or a bcrypt hash weaker than the configured strength, a fresh hash is computed and handed
+    // to onRehash so the caller can persist it; users are upgraded transparently on their next login.
+    public CompletableFuture<Boolean> verify(String rawPassword, String storedPassword, Consumer<String> onRehash) {
+        return submit(() -> {
+            if (rawPassword == null || storedPassword == null) {
+                return false;
+            }
+            boolean matches = isHashed(storedPassword)
+                    ? encoder.matches(rawPassword, storedPassword)
+                    : MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                            storedPassword.getBytes(StandardCharsets.UTF_8));
+            if (matches && (!isHashed(storedPassword) || encoder.upgradeEncoding(storedPassword))) {
+                try {
+                    onRehash.accept(encoder.encode(rawPassword));
+                } catch (RuntimeException e) {
+                    // The login itself succeeded; the upgrade is retried on the next login
+                    logger.warn("Could not store upgraded password hash", e);
+                }
+            }
+            return matches;
+        });
+    }
+
+    // Returns true when the cause of a failed future is a full hashing executor
+    public static boolean isOverloaded(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && !(cause instanceof RejectedExecutionException)) {
+            cause = cause.getCause();
+        }
+        return cause instanceof RejectedExecutionException;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Returns true when the password is a bcrypt hash rather than a raw password
+    public static boolean isHashed(String password) {
+        return password.startsWith("$2a$") || password.startsWith("$2b$") || password.startsWith("$2y$");
+    }
+}
@@ -0,0 +1,188 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Builds the patient record view in one call: a page of the patient's appointments from MySQL joined by appointment
+// id with their prescription summaries from MongoDB. Both stores are queried at the same time on a bounded executor,
+// each with its own timeout: prescriptions carry their patient id, so the MongoDB lookup does not wait for the page
+// and the record costs roughly the slower of the two. Until the startup backfill of patient ids has finished, the
+// appointments of the page that got no prescription are also looked up by appointment id. When MongoDB is slow,
+// failing or the executor is saturated, the appointments are returned anyway with partial set and no prescriptions.
+// The reverse does not hold: the page, its order and its cursor come from MySQL, and a prescription summary has no
+// appointment time to place it in a page, so a MySQL timeout answers 504 Gateway Timeout and a saturated executor 503.
+// A lookup that outlives its timeout keeps its thread until the driver returns.
+@Service
+public class PatientRecordService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientRecordService.class);
+
+    private final PatientService patientService;
+    private final PrescriptionService prescriptionService;
+    private final ThreadPoolExecutor executor;
+    private final Duration mysqlTimeout;
+    private final Duration mongoTimeout;
+
+    public PatientRecordService(PatientService patientService,
+                                PrescriptionService prescriptionService,
+                                @Value("${patient.record.threads:16}") int threads,
+                                @Value("${patient.record.queue-capacity:100}") int queueCapacity,
+                                @Value("${patient.record.mysql-timeout:PT2S}") String mysqlTimeout,
+                                @Value("${patient.record.mongo-timeout:PT0.5S}") String mongoTimeout) {
+        this.patientService = patientService;
+        this.prescriptionService = prescriptionService;
+        this.mysqlTimeout = Duration.parse(mysqlTimeout);
+        this.mongoTimeout = Duration.parse(mongoTimeout);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "patient-record-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Retrieves one page of the patient's appointments (see PatientService.getPatientAppointment) as records of
+    // the appointment and its prescription summary (null when it has none), plus nextCursor and partial
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getPatientRecord(Long id, String token,
+                                                                                   String cursor, int size) {
+        CompletableFuture<ResponseEntity<Map<String, Object>>> appointments;
+        try {
+            appointments = CompletableFuture
+                    .supplyAsync(() -> patientService.getPatientAppointment(id, token, cursor, size), executor)
+                    .orTimeout(mysqlTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            appointments = CompletableFuture.failedFuture(e);
+        }
+        // started before the page is read; the result is dropped if the page is refused
+        CompletableFuture<Map<Long, Map<String, Object>>> prescriptions =
+                lookup(() -> prescriptionService.findSummariesByPatient(id));
+        return appointments
+                .thenCompose(page -> page.getStatusCode().is2xxSuccessful()
+                        ? prescriptions
+                                .thenCompose(found -> completeByAppointment(page.getBody(), found))
+                                .thenApply(found -> merge(page.getBody(), found))
+                        : CompletableFuture.completedFuture(page))
+                .exceptionally(error -> failed(id, error));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // Completes with the result of a MongoDB lookup, or with null if MongoDB did not answer within the timeout,
+    // failed, or the lookup could not be scheduled
+    private CompletableFuture<Map<Long, Map<String, Object>>> lookup(Supplier<Map<Long, Map<String, Object>>> query) {
+        try {
+            return CompletableFuture
+                    .supplyAsync(query, executor)
+                    .orTimeout(mongoTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .exceptionally(error -> {
+                        logger.warn("Patient record served without prescriptions: {}", describe(unwrap(error)));
+                        return null;
+                    });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Patient record served without prescriptions: executor saturated");
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    // While prescriptions saved before patient_id existed are being backfilled, looks up by appointment id the
+    // appointments of the page that got no prescription by patient id
+    private CompletableFuture<Map<Long, Map<String, Object>>> completeByAppointment(
+            Map<String, Object> page, Map<Long, Map<String, Object>> found) {
+        if (found == null || prescriptionService.isPatientIdComplete()) {
+            return CompletableFuture.completedFuture(found);
+        }
+        LinkedHashSet<Long> missing = new LinkedHashSet<>();
+        for (AppointmentDTO appointment : appointmentsOf(page)) {
+            if (!found.containsKey(appointment.getId())) {
+                missing.add(appointment.getId());
+            }
+        }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(found);
+        }
+        return lookup(() -> prescriptionService.findSummaries(missing)).thenApply(more -> {
+            if (more == null) {
+                return null;
+            }
+            Map<Long, Map<String, Object>> all = new HashMap<>(found);
+            all.putAll(more);
+            return all;
+        });
+    }
+
+    private ResponseEntity<Map<String, Object>> merge(Map<String, Object> page,
+                                                      Map<Long, Map<String, Object>> prescriptions) {
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (AppointmentDTO appointment : appointmentsOf(page)) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("appointment", appointment);
+            record.put("prescription", prescriptions != null ? prescriptions.get(appointment.getId()) : null);
+            records.add(record);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("records", records);
+        response.put("nextCursor", page.get("nextCursor"));
+        response.put("partial", prescriptions == null);
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> failed(Long patientId, Throwable error) {
+        Throwable cause = unwrap(error);
+        Map<String, Object> response = new HashMap<>();
+        if (cause instanceof TimeoutException) {
+            logger.warn("Appointments of patient {} not read within {}", patientId, mysqlTimeout);
+            response.put("error", "The patient record took too long to load, please try again");
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response);
+        }
+        if (cause instanceof RejectedExecutionException) {
+            response.put("error", "Too many patient record requests, please try again shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+        }
+        logger.error("Error building the record of patient {}", patientId, cause);
+        response.put("error", "Internal server error");
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AppointmentDTO> appointmentsOf(Map<String, Object> page) {
+        return (List<AppointmentDTO>) page.get("appointments");
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private String describe(Throwable cause) {
+        return cause instanceof TimeoutException ? "no answer within " + mongoTimeout : cause.toString();
+    }
+}
@@ -1,58 +1,241 @@
 package com.project.back_end.services;
 
+import com.project.back_end.DTO.AppointmentCursor;
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.Appointment.AppointmentStatus;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.PatientRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
 public class PatientService {
-// 1. **Add @Service Annotation**:
-//    - The `@Service` annotation is used to mark this class as a Spring service component. 
-//    - It will be managed by Spring's container and used for business logic related to patients and appointments.
-//    - Instruction: Ensure that the `@Service` annotation is applied above the class declaration.
-
-// 2. **Constructor Injection for Dependencies**:
-//    - The `PatientService` class has dependencies on `PatientRepository`, `AppointmentRepository`, and `TokenService`.
-//    - These dependencies are injected via the constructor to maintain good practices of dependency injection and testing.
-//    - Instruction: Ensure constructor injection is used for all the required dependencies.
-
-// 3. **createPatient Method**:
-//    - Creates a new patient in the database. It saves the patient object using the `PatientRepository`.
-//    - If the patient is successfully saved, the method returns `1`; otherwise, it logs the error and returns `0`.
-//    - Instruction: Ensure that error handling is done properly and exceptions are caught and logged appropriately.
-
-// 4. **getPatientAppointment Method**:
-//    - Retrieves a list of appointments for a specific patient, based on their ID.
-//    - The appointments are then converted into `AppointmentDTO` objects for easier consumption by the API client.
-//    - This method is marked as `@Transactional` to ensure database consistency during the transaction.
-//    - Instruction: Ensure that appointment data is properly converted into DTOs and the method handles errors gracefully.
-
-// 5. **filterByCondition Method**:
-//    - Filters appointments for a patient based on the condition (e.g., "past" or "future").
-//    - Retrieves appointments with a specific status (0 for future, 1 for past) for the patient.
-//    - Converts the appointments into `AppointmentDTO` and returns them in the response.
-//    - Instruction: Ensure the method correctly handles "past" and "future" conditions, and that invalid conditions are caught and returned as errors.
-
-// 6. **filterByDoctor Method**:
-//    - Filters appointments for a patient based on the doctor's name.
-//    - It retrieves appointments where the doctor’s name matches the given value, and the patient ID matches the provided ID.
-//    - Instruction: Ensure that the method correctly filters by doctor's name and patient ID and handles any errors or invalid cases.
-
-// 7. **filterByDoctorAndCondition Method**:
-//    - Filters appointments based on both the doctor's name and the condition (past or future) for a specific patient.
-//    - This method combines filtering by doctor name and appointment status (past or future).
-//    - Converts the appointments into `AppointmentDTO` objects and returns them in the response.
-//    - Instruction: Ensure that the filter handles both doctor name and condition properly, and catches errors for invalid input.
-
-// 8. **getPatientDetails Method**:
-//    - Retrieves patient details using the `tokenService` to extract the patient's email from the provided token.
-//    - Once the email is extracted, it fetches the corresponding patient from the `patientRepository`.
-//    - It returns the patient's information in the response body.
-    //    - Instruction: Make sure that the token extraction process works correctly and patient details are fetched properly based on the extracted email.
-
-// 9. **Handling Exceptions and Errors**:
-//    - The service methods handle exceptions using try-catch blocks and log any issues that occur. If an error occurs during database operations, the service responds with appropriate HTTP status codes (e.g., `500 Internal Server Error`).
-//    - Instruction: Ensure that error handling is consistent across the service, with proper logging and meaningful error messages returned to the client.
-
-// 10. **Use of DTOs (Data Transfer Objects)**:
-//    - The service uses `AppointmentDTO` to transfer appointment-related data between layers. This ensures that sensitive or unnecessary data (e.g., password or private patient information) is not exposed in the response.
-//    - Instruction: Ensure that DTOs are used appropriately to limit the exposure of internal data and only send the relevant fields to the client.
 
+    private static final Logger logger = LoggerFactory.getLogger(PatientService.class);
+
+    private final PatientRepository patientRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final AppointmentArchiver archiver;
+    private final TokenService tokenService;
+    private final PasswordService passwordService;
+
+    public PatientService(PatientRepository patientRepository,
+                          AppointmentRepository appointmentRepository,
+                          ArchivedAppointmentRepository archivedAppointmentRepository,
+                          AppointmentArchiver archiver,
+                          TokenService tokenService,
+                          PasswordService passwordService) {
+        this.patientRepository = patientRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.archiver = archiver;
+        this.tokenService = tokenService;
+        this.passwordService = passwordService;
+    }
+
+    // Saves a new patient: 1 on success, -2 if the hashing executor is saturated, 0 on internal error
+    public int createPatient(Patient patient) {
+        try {
+            patient.setPassword(passwordService.encode(patient.getPassword()).join());
+            patientRepository.save(patient);
+            return 1;
+        } catch (Exception e) {
+            if (PasswordService.isOverloaded(e)) {
+                return -2;
+            }
+            logger.error("Error creating patient", e);
+            return 0;
+        }
+    }
+
+    // Retrieves one page of a patient's appointments, continuing after the given cursor (null for the first page).
+    // Patients may only read their own appointments, doctors may read the record of any patient.
+    @Transactional(readOnly = true)
+    public ResponseEntity<Map<String, Object>> getPatientAppointment(Long id, String token, String cursor, int size) {
+        Map<String, Object> response = new HashMap<>();
+        AppointmentCursor.Position position = decodeCursor(cursor);
+        if (position == null) {
+            response.put("error", "Invalid cursor");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        try {
+            if (!canAccessPatient(token, id)) {
+                response.put("error", "Unauthorized access to patient appointments");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+            }
+            List<AppointmentDTO> rows = appointmentRepository.findPatientPage(
+                    id, position.time(), position.id(), AppointmentCursor.limit(size));
+            if (archiver.holdsAppointmentsFrom(position.time())) {
+                rows = AppointmentCursor.merge(rows, archivedAppointmentRepository.findPatientPage(
+                        id, position.time(), position.id(), AppointmentCursor.limit(size)));
+            }
+            putPage(response, rows, size);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error fetching patient appointments", e);
+            response.put("error", "Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Filters a patient's appointments by condition: "future" for scheduled ones, "past" for completed ones,
+    // one page at a time after the given cursor
+    @Transactional(readOnly = true)
+    public ResponseEntity<Map<String, Object>> filterByCondition(String condition, Long id, String cursor, int size) {
+        Map<String, Object> response = new HashMap<>();
+        AppointmentStatus status = statusFor(condition);
+        if (status == null) {
+            response.put("error", "Invalid condition, use 'past' or 'future'");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        AppointmentCursor.Position position = decodeCursor(cursor);
+        if (position == null) {
+            response.put("error", "Invalid cursor");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        try {
+            List<AppointmentDTO> rows = appointmentRepository.findPatientPageByStatus(
+                    id, status, position.time(), position.id(), AppointmentCursor.limit(size));
+            if (isArchived(status, position.time())) {
+                rows = AppointmentCursor.merge(rows, archivedAppointmentRepository.findPatientPageByStatus(
+                        id, status, position.time(), position.id(), AppointmentCursor.limit(size)));
+            }
+            putPage(response, rows, size);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error filtering appointments by condition", e);
+            response.put("error", "Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Filters a patient's appointments by doctor name
+    @Transactional(readOnly = true)
+    public ResponseEntity<Map<String, Object>> filterByDoctor(String name, Long patientId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<AppointmentDTO> appointments = appointmentRepository.filterByDoctorNameAndPatientId(name, patientId);
+            if (archiver.holdsAppointmentsFrom(AppointmentCursor.FIRST.time())) {
+                appointments = AppointmentCursor.merge(appointments,
+                        archivedAppointmentRepository.filterByDoctorNameAndPatientId(name, patientId));
+            }
+            response.put("appointments", appointments);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error filtering appointments by doctor", e);
+            response.put("error", "Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Filters a patient's appointments by both condition and doctor name
+    @Transactional(readOnly = true)
+    public ResponseEntity<Map<String, Object>> filterByDoctorAndCondition(String condition, String name, long patientId) {
+        Map<String, Object> response = new HashMap<>();
+        AppointmentStatus status = statusFor(condition);
+        if (status == null) {
+            response.put("error", "Invalid condition, use 'past' or 'future'");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        try {
+            List<AppointmentDTO> appointments =
+                    appointmentRepository.filterByDoctorNameAndPatientIdAndStatus(name, patientId, status);
+            if (isArchived(status, AppointmentCursor.FIRST.time())) {
+                appointments = AppointmentCursor.merge(appointments,
+                        archivedAppointmentRepository.filterByDoctorNameAndPatientIdAndStatus(name, patientId, status));
+            }
+            response.put("appointments", appointments);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error filtering appointments by doctor and condition", e);
+            response.put("error", "Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Retrieves the details of the patient the token was issued to.
+    // The id comes from the token's uid claim; tokens without one are resolved by email.
+    public ResponseEntity<Map<String, Object>> getPatientDetails(String token) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Long patientId = tokenService.extractUserId(token);
+            Patient patient = patientId != null
+                    ? patientRepository.findById(patientId).orElse(null)
+                    : patientRepository.findByEmail(tokenService.extractEmail(token));
+            if (patient == null) {
+                response.put("error", "Patient not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            response.put("patient", patient);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error fetching patient details", e);
+            response.put("error", "Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Resolves the id of the patient a token was issued to, from the uid claim when present
+    public Long resolvePatientId(String token) {
+        Long patientId = tokenService.extractUserId(token);
+        if (patientId != null) {
+            return patientId;
+        }
+        Patient patient = patientRepository.findByEmail(tokenService.extractEmail(token));
+        return patient != null ? patient.getId() : null;
+    }
+
+    private boolean canAccessPatient(String token, Long patientId) {
+        String role = tokenService.extractRole(token);
+        if (role != null && !role.equals("patient")) {
+            return true;
+        }
+        if (role == null && tokenService.validateToken(token, "doctor")) {
+            return true;
+        }
+        return patientId.equals(resolvePatientId(token));
+    }
+
+    private AppointmentStatus statusFor(String condition) {
+        if ("future".equalsIgnoreCase(condition)) {
+            return AppointmentStatus.SCHEDULED;
+        }
+        if ("past".equalsIgnoreCase(condition)) {
+            return AppointmentStatus.COMPLETED;
+        }
+        return null;
+    }
+
+    // True if appointments with the given status starting at or after the given time may have been archived;
+    // only completed and cancelled appointments are
+    private boolean isArchived(AppointmentStatus status, LocalDateTime from) {
+        return status != AppointmentStatus.SCHEDULED && archiver.holdsAppointmentsFrom(from);
+    }
 
+    // Returns the position encoded by the cursor, or null if the cursor is malformed
+    private AppointmentCursor.Position decodeCursor(String cursor) {
+        try {
+            return AppointmentCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 
+    // Puts one page of appointments and the cursor of the next page (null on the last page) into the response
+    private void putPage(Map<String, Object> response, List<AppointmentDTO> rows, int size) {
+        response.put("appointments", AppointmentCursor.page(rows, size));
+        response.put("nextCursor", AppointmentCursor.next(rows, size));
+    }
 }
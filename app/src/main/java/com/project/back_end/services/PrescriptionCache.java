@@ -0,0 +1,141 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Prescription;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read-through cache of prescriptions keyed by appointment id. A prescription does not change once written, so
+// entries never expire; they are evicted least recently used first once the estimated size of the cached documents
+// exceeds max-bytes, which bounds the memory rather than the number of entries (notes make sizes vary widely).
+// PrescriptionService fills it on save and on read; any path that changes or deletes a prescription must call
+// invalidate(). Hits, misses, evictions, hit ratio, entries and bytes are published as prescription.cache.* meters.
+@Component
+public class PrescriptionCache {
+
+    // Fixed per-entry cost: the map entry, the key, the document and its boxed fields
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private record Entry(Prescription prescription, int bytes) {
+    }
+
+    private final long maxBytes;
+
+    // Access ordered so that the least recently used entry is evicted first
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PrescriptionCache(ObjectProvider<MeterRegistry> meterRegistry,
+                             @Value("${prescription.cache.max-bytes:16777216}") long maxBytes) {
+        this.maxBytes = maxBytes;
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        FunctionCounter.builder("prescription.cache.hits", hits, LongAdder::sum)
+                .description("Prescription lookups served from the cache").register(registry);
+        FunctionCounter.builder("prescription.cache.misses", misses, LongAdder::sum)
+                .description("Prescription lookups that went to MongoDB").register(registry);
+        FunctionCounter.builder("prescription.cache.evictions", evictions, LongAdder::sum)
+                .description("Prescriptions evicted to stay within max-bytes").register(registry);
+        Gauge.builder("prescription.cache.hit.ratio", this, PrescriptionCache::getHitRatio)
+                .description("Share of lookups served from the cache").register(registry);
+        Gauge.builder("prescription.cache.entries", this, PrescriptionCache::size)
+                .description("Cached prescriptions").register(registry);
+        Gauge.builder("prescription.cache.bytes", this, PrescriptionCache::getBytes)
+                .description("Estimated memory held by the cached prescriptions").baseUnit("bytes").register(registry);
+    }
+
+    // Returns the cached prescription of the appointment, or null
+    public Prescription get(Long appointmentId) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(appointmentId);
+        }
+        (entry != null ? hits : misses).increment();
+        return entry != null ? entry.prescription() : null;
+    }
+
+    // Caches a complete prescription document (not a projection) under its appointment id
+    public void put(Prescription prescription) {
+        int size = sizeOf(prescription);
+        if (prescription.getAppointmentId() == null || size > maxBytes) {
+            return;
+        }
+        synchronized (entries) {
+            Entry previous = entries.put(prescription.getAppointmentId(), new Entry(prescription, size));
+            bytes += size - (previous != null ? previous.bytes() : 0);
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().bytes();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    // Drops the cached prescription of the appointment, e.g. after it was changed or deleted
+    public void invalidate(Long appointmentId) {
+        synchronized (entries) {
+            Entry removed = entries.remove(appointmentId);
+            if (removed != null) {
+                bytes -= removed.bytes();
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    // Estimated heap size of a document: two bytes per character of its strings plus a fixed overhead
+    private static int sizeOf(Prescription prescription) {
+        return ENTRY_OVERHEAD_BYTES + 2 * (length(prescription.getId()) + length(prescription.getPatientName())
+                + length(prescription.getDoctorName()) + length(prescription.getMedication())
+                + length(prescription.getDosage()) + length(prescription.getDoctorNotes())
+                + length(prescription.getPharmacyName()));
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
@@ -1,34 +1,245 @@
 package com.project.back_end.services;
 
+import com.project.back_end.models.Prescription;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@org.springframework.stereotype.Service
 public class PrescriptionService {
-    
- // 1. **Add @Service Annotation**:
-//    - The `@Service` annotation marks this class as a Spring service component, allowing Spring's container to manage it.
-//    - This class contains the business logic related to managing prescriptions in the healthcare system.
-//    - Instruction: Ensure the `@Service` annotation is applied to mark this class as a Spring-managed service.
-
-// 2. **Constructor Injection for Dependencies**:
-//    - The `PrescriptionService` class depends on the `PrescriptionRepository` to interact with the database.
-//    - It is injected through the constructor, ensuring proper dependency management and enabling testing.
-//    - Instruction: Constructor injection is a good practice, ensuring that all necessary dependencies are available at the time of service initialization.
-
-// 3. **savePrescription Method**:
-//    - This method saves a new prescription to the database.
-//    - Before saving, it checks if a prescription already exists for the same appointment (using the appointment ID).
-//    - If a prescription exists, it returns a `400 Bad Request` with a message stating the prescription already exists.
-//    - If no prescription exists, it saves the new prescription and returns a `201 Created` status with a success message.
-//    - Instruction: Handle errors by providing appropriate status codes and messages, ensuring that multiple prescriptions for the same appointment are not saved.
-
-// 4. **getPrescription Method**:
-//    - Retrieves a prescription associated with a specific appointment based on the `appointmentId`.
-//    - If a prescription is found, it returns it within a map wrapped in a `200 OK` status.
-//    - If there is an error while fetching the prescription, it logs the error and returns a `500 Internal Server Error` status with an error message.
-//    - Instruction: Ensure that this method handles edge cases, such as no prescriptions found for the given appointment, by returning meaningful responses.
-
-// 5. **Exception Handling and Error Responses**:
-//    - Both methods (`savePrescription` and `getPrescription`) contain try-catch blocks to handle exceptions that may occur during database interaction.
-//    - If an error occurs, the method logs the error and returns an HTTP `500 Internal Server Error` response with a corresponding error message.
-//    - Instruction: Ensure that all potential exceptions are handled properly, and meaningful responses are returned to the client.
 
+    private static final Logger logger = LoggerFactory.getLogger(PrescriptionService.class);
+
+    public static final int MAX_BULK_IDS = 100;
+    public static final int MAX_SEARCH_PAGE_SIZE = 50;
+    private static final int MAX_SEARCH_LENGTH = 200;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final PrescriptionRepository prescriptionRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final ScheduleEvents events;
+    private final PrescriptionCache cache;
+
+    // Set once every stored prescription carries its patient id, see backfillPatientIds
+    private volatile boolean patientIdsComplete;
+
+    public PrescriptionService(PrescriptionRepository prescriptionRepository,
+                               AppointmentRepository appointmentRepository,
+                               ArchivedAppointmentRepository archivedAppointmentRepository,
+                               ScheduleEvents events,
+                               PrescriptionCache cache) {
+        this.prescriptionRepository = prescriptionRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.archivedAppointmentRepository = archivedAppointmentRepository;
+        this.events = events;
+        this.cache = cache;
+    }
+
+    // Saves the prescription of an appointment; 400 if the appointment already has one
+    public ResponseEntity<Map<String, String>> savePrescription(Prescription prescription) {
+        Map<String, String> response = new HashMap<>();
+        try {
+            if (prescriptionRepository.existsByAppointmentId(prescription.getAppointmentId())) {
+                response.put("message", "Prescription already exists for this appointment");
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            }
+            prescription.setPatientId(patientIdsOf(List.of(prescription.getAppointmentId()))
+                    .get(prescription.getAppointmentId()));
+            Prescription saved = prescriptionRepository.save(prescription);
+            cache.put(saved);
+            events.prescriptionAdded(saved.getAppointmentId(), saved.getId());
+            response.put("message", "Prescription saved");
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (Exception e) {
+            logger.error("Failed to save the prescription of appointment {}", prescription.getAppointmentId(), e);
+            response.put("message", "Failed to save prescription");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Retrieves the prescription of an appointment, from the cache when possible; 404 if there is none
+    public ResponseEntity<Map<String, Object>> getPrescription(Long appointmentId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Prescription prescription = cache.get(appointmentId);
+            if (prescription == null) {
+                List<Prescription> prescriptions = prescriptionRepository.findByAppointmentId(appointmentId);
+                if (prescriptions.isEmpty()) {
+                    response.put("message", "No prescription found for this appointment");
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                }
+                prescription = prescriptions.get(0);
+                cache.put(prescription);
+            }
+            response.put("prescription", prescription);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Failed to fetch the prescription of appointment {}", appointmentId, e);
+            response.put("message", "Failed to fetch prescription");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Retrieves the prescription summaries (id, medication, dosage) of up to MAX_BULK_IDS appointments, keyed by
+    // appointment id; cached prescriptions are used as is and the others are read with one query.
+    // Appointments without a prescription are left out
+    public ResponseEntity<Map<String, Object>> getPrescriptions(List<Long> appointmentIds) {
+        Map<String, Object> response = new HashMap<>();
+        LinkedHashSet<Long> ids = new LinkedHashSet<>(appointmentIds);
+        ids.remove(null);
+        if (ids.isEmpty() || ids.size() > MAX_BULK_IDS) {
+            response.put("message", "Between 1 and " + MAX_BULK_IDS + " appointment ids are required");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        try {
+            response.put("prescriptions", findSummaries(ids));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Failed to fetch the prescriptions of {} appointments", ids.size(), e);
+            response.put("message", "Failed to fetch prescriptions");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Returns the prescription summaries (id, medication, dosage) of the given appointments keyed by appointment id;
+    // cached prescriptions are used as is and the others are read with one query
+    public Map<Long, Map<String, Object>> findSummaries(Collection<Long> appointmentIds) {
+        Map<Long, Map<String, Object>> prescriptions = new LinkedHashMap<>();
+        List<Long> uncached = new ArrayList<>();
+        for (Long id : appointmentIds) {
+            Prescription cached = cache.get(id);
+            if (cached != null) {
+                prescriptions.put(id, summaryOf(cached));
+            } else {
+                uncached.add(id);
+            }
+        }
+        // projections lack most fields, so they are not cached
+        if (!uncached.isEmpty()) {
+            for (Prescription prescription : prescriptionRepository.findSummariesByAppointmentIdIn(uncached)) {
+                prescriptions.putIfAbsent(prescription.getAppointmentId(), summaryOf(prescription));
+            }
+        }
+        return prescriptions;
+    }
+
+    // Returns the prescription summaries (id, medication, dosage) of every prescription of a patient keyed by
+    // appointment id, with one query on the patient_id index
+    public Map<Long, Map<String, Object>> findSummariesByPatient(Long patientId) {
+        Map<Long, Map<String, Object>> prescriptions = new LinkedHashMap<>();
+        for (Prescription prescription : prescriptionRepository.findSummariesByPatientId(patientId)) {
+            prescriptions.putIfAbsent(prescription.getAppointmentId(), summaryOf(prescription));
+        }
+        return prescriptions;
+    }
+
+    // True once the prescriptions saved before patient_id existed have been backfilled; until then a patient's
+    // prescriptions must also be looked up by appointment id
+    public boolean isPatientIdComplete() {
+        return patientIdsComplete;
+    }
+
+    // Sets the patient id of the prescriptions saved before the field existed, BACKFILL_BATCH_SIZE at a time.
+    // Prescriptions whose appointment no longer exists get a null patient id so that they are not read again.
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillPatientIds() {
+        long updated = 0;
+        try {
+            List<Prescription> batch;
+            while (!(batch = prescriptionRepository.findWithoutPatientId(Limit.of(BACKFILL_BATCH_SIZE))).isEmpty()) {
+                List<Long> appointmentIds = batch.stream().map(Prescription::getAppointmentId).distinct().toList();
+                Map<Long, Long> patientIds = patientIdsOf(appointmentIds);
+                Map<Long, List<Long>> byPatient = new HashMap<>();
+                for (Long appointmentId : appointmentIds) {
+                    byPatient.computeIfAbsent(patientIds.get(appointmentId), key -> new ArrayList<>()).add(appointmentId);
+                }
+                long batchUpdated = 0;
+                for (Map.Entry<Long, List<Long>> entry : byPatient.entrySet()) {
+                    batchUpdated += prescriptionRepository.updatePatientIdByAppointmentIdIn(entry.getValue(), entry.getKey());
+                }
+                if (batchUpdated == 0) {
+                    throw new IllegalStateException("No prescription of the batch could be updated");
+                }
+                updated += batchUpdated;
+            }
+            patientIdsComplete = true;
+            if (updated > 0) {
+                logger.info("Backfilled the patient id of {} prescriptions", updated);
+            }
+        } catch (Exception e) {
+            logger.error("Backfilling the patient id of prescriptions failed after {} updates, it is retried on the next start",
+                    updated, e);
+        }
+    }
+
+    // Searches the medication and doctor notes of all prescriptions, most relevant first. The query uses MongoDB text
+    // search syntax: words match any of their stemmed forms, "quoted phrases" must appear and -word excludes.
+    public ResponseEntity<Map<String, Object>> searchPrescriptions(String query, int page, int size) {
+        Map<String, Object> response = new HashMap<>();
+        if (query == null || query.isBlank() || query.length() > MAX_SEARCH_LENGTH) {
+            response.put("message", "The search query must have between 1 and " + MAX_SEARCH_LENGTH + " characters");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        try {
+            Page<Prescription> results = prescriptionRepository.findAllByOrderByScoreDesc(
+                    TextCriteria.forDefaultLanguage().matching(query.trim()),
+                    PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE)));
+            response.put("prescriptions", results.getContent());
+            response.put("page", results.getNumber());
+            response.put("size", results.getSize());
+            response.put("total", results.getTotalElements());
+            response.put("hasNext", results.hasNext());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Prescription search for '{}' failed", query, e);
+            response.put("message", "Failed to search prescriptions");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Returns the patient id of each given appointment that exists, in the appointment table or in the archive
+    private Map<Long, Long> patientIdsOf(Collection<Long> appointmentIds) {
+        Map<Long, Long> patientIds = new HashMap<>();
+        List<Long> ids = appointmentIds.stream().filter(Objects::nonNull).toList();
+        if (ids.isEmpty()) {
+            return patientIds;
+        }
+        for (Object[] row : appointmentRepository.findPatientIdsByIds(ids)) {
+            patientIds.put((Long) row[0], (Long) row[1]);
+        }
+        if (patientIds.size() < ids.size()) {
+            for (Object[] row : archivedAppointmentRepository.findPatientIdsByIds(ids)) {
+                patientIds.putIfAbsent((Long) row[0], (Long) row[1]);
+            }
+        }
+        return patientIds;
+    }
 
+    private static Map<String, Object> summaryOf(Prescription prescription) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("id", prescription.getId());
+        summary.put("medication", prescription.getMedication());
+        summary.put("dosage", prescription.getDosage());
+        return summary;
+    }
 }
@@ -0,0 +1,318 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.repo.AppointmentRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Pushes changes of a doctor's day to the open doctor dashboards as server-sent events, so that a dashboard loads
+// the day once and then only applies the events: "booked" and "updated" carry the AppointmentDTO of the appointment,
+// "cancelled" and "prescription-added" its id. A dashboard subscribes to one doctor and date.
+// Events are built once per change on a single publisher thread, and only when someone watches that day. Each
+// subscriber has its own queue of at most buffer-size events, so a slow client never holds more than that: when its
+// queue overflows, the queued events are dropped and the client gets a single "resync" event telling it to reload the
+// day instead. Each subscriber is drained by its own sender thread (a virtual thread when spring.threads.virtual is
+// enabled on Java 21), so a client whose socket stops accepting writes blocks only itself; a send that is still
+// running after send-timeout gets the subscriber dropped, and its stream is closed once the write returns.
+@Component
+public class ScheduleEvents {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduleEvents.class);
+
+    private record Key(Long doctorId, LocalDate date) {
+    }
+
+    private record Event(long id, String name, Object data) {
+    }
+
+    // One open event stream with the events not yet sent to it
+    private final class Subscriber {
+        private final Key key;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Event> queue;
+        private final AtomicBoolean overflowed = new AtomicBoolean();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+        // Start of the send in progress in epoch millis, 0 while no send is running
+        private final AtomicLong sendingSince = new AtomicLong();
+
+        private Subscriber(Key key, SseEmitter emitter) {
+            this.key = key;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    private final AppointmentRepository appointmentRepository;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final Duration timeout;
+    private final Duration sendTimeout;
+
+    private final Map<Key, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Builds the events in the order of the changes; the senders write them to the clients
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(daemon("schedule-events-publisher"));
+    private final Executor senders;
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(daemon("schedule-events-heartbeat"));
+
+    public ScheduleEvents(AppointmentRepository appointmentRepository,
+                          @Value("${schedule.events.buffer-size:64}") int bufferSize,
+                          @Value("${schedule.events.max-subscribers:1000}") int maxSubscribers,
+                          @Value("${schedule.events.timeout:PT30M}") String timeout,
+                          @Value("${schedule.events.send-timeout:PT10S}") String sendTimeout,
+                          @Value("${schedule.events.heartbeat:PT30S}") String heartbeatInterval,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.appointmentRepository = appointmentRepository;
+        this.bufferSize = Math.max(bufferSize, 1);
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = Duration.parse(timeout);
+        this.sendTimeout = Duration.parse(sendTimeout);
+        this.senders = senders(virtualThreads);
+        long interval = Duration.parse(heartbeatInterval).toMillis();
+        // a comment line every interval keeps proxies from closing idle streams and detects clients that are gone
+        heartbeat.scheduleWithFixedDelay(() -> broadcast(new Event(0, null, null)), interval, interval, TimeUnit.MILLISECONDS);
+        long check = Math.max(this.sendTimeout.toMillis() / 2, 10);
+        heartbeat.scheduleWithFixedDelay(this::dropStalledSubscribers, check, check, TimeUnit.MILLISECONDS);
+    }
+
+    // Opens an event stream of the doctor's appointments on the given date; null when max-subscribers are open
+    public SseEmitter subscribe(Long doctorId, LocalDate date) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        return register(doctorId, date, emitter) ? emitter : null;
+    }
+
+    // Called after a new appointment of the doctor at the given time has committed
+    public void booked(Long doctorId, LocalDateTime time, Long appointmentId) {
+        publish(doctorId, time, "booked", () -> appointmentRepository.findDtoById(appointmentId));
+    }
+
+    // Called after an appointment has committed a change; an appointment moved to another doctor or day is
+    // announced on its previous day too, where the dashboard removes it
+    public void updated(Long previousDoctorId, LocalDateTime previousTime, Long doctorId, LocalDateTime time, Long appointmentId) {
+        Supplier<Object> appointment = () -> appointmentRepository.findDtoById(appointmentId);
+        publish(doctorId, time, "updated", appointment);
+        if (!new Key(previousDoctorId, previousTime.toLocalDate()).equals(new Key(doctorId, time.toLocalDate()))) {
+            publish(previousDoctorId, previousTime, "updated", appointment);
+        }
+    }
+
+    // Called after an appointment has been cancelled or deleted
+    public void cancelled(Long doctorId, LocalDateTime time, Long appointmentId) {
+        publish(doctorId, time, "cancelled", () -> Map.of("appointmentId", appointmentId));
+    }
+
+    // Called after a prescription has been saved for an appointment; the appointment's doctor and day are looked up
+    // on the publisher thread, and only while some dashboard is open
+    public void prescriptionAdded(Long appointmentId, String prescriptionId) {
+        if (subscriberCount.get() == 0) {
+            return;
+        }
+        publisher.execute(() -> {
+            try {
+                AppointmentDTO appointment = appointmentRepository.findDtoById(appointmentId);
+                if (appointment == null) {
+                    return;
+                }
+                Map<String, Object> data = new LinkedHashMap<>();
+                data.put("appointmentId", appointmentId);
+                data.put("prescriptionId", prescriptionId);
+                enqueue(new Key(appointment.getDoctorId(), appointment.getAppointmentDate()), "prescription-added", data);
+            } catch (Exception e) {
+                logger.warn("Could not build the prescription-added event of appointment {}", appointmentId, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        publisher.shutdownNow();
+        if (senders instanceof ExecutorService pool) {
+            pool.shutdownNow();
+        }
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    // Registers an emitter for the doctor's day; false when max-subscribers are open
+    boolean register(Long doctorId, LocalDate date, SseEmitter emitter) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return false;
+        }
+        Subscriber subscriber = new Subscriber(new Key(doctorId, date), emitter);
+        // compute() keeps a registration from landing in a set that remove() is dropping from the map
+        subscribers.compute(subscriber.key, (key, set) -> {
+            Set<Subscriber> watching = set != null ? set : ConcurrentHashMap.newKeySet();
+            watching.add(subscriber);
+            return watching;
+        });
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+        return true;
+    }
+
+    // Open event streams
+    int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    // Builds the event on the publisher thread and queues it for the subscribers of the day, if there are any
+    private void publish(Long doctorId, LocalDateTime time, String name, Supplier<Object> data) {
+        Key key = new Key(doctorId, time.toLocalDate());
+        if (!subscribers.containsKey(key)) {
+            return;
+        }
+        publisher.execute(() -> {
+            try {
+                Object payload = data.get();
+                if (payload != null) {
+                    enqueue(key, name, payload);
+                }
+            } catch (Exception e) {
+                logger.warn("Could not build the {} event of doctor {}", name, doctorId, e);
+            }
+        });
+    }
+
+    private void enqueue(Key key, String name, Object data) {
+        Set<Subscriber> watching = subscribers.get(key);
+        if (watching == null) {
+            return;
+        }
+        Event event = new Event(sequence.incrementAndGet(), name, data);
+        for (Subscriber subscriber : watching) {
+            offer(subscriber, event);
+        }
+    }
+
+    private void broadcast(Event event) {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> offer(subscriber, event)));
+    }
+
+    private void offer(Subscriber subscriber, Event event) {
+        if (!subscriber.queue.offer(event)) {
+            // the client does not keep up: drop what it has not received and let it reload the day
+            subscriber.queue.clear();
+            subscriber.overflowed.set(true);
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    // Sends the queued events of one subscriber; at most one sender drains a given subscriber at a time
+    private void drain(Subscriber subscriber) {
+        try {
+            while (true) {
+                if (subscriber.overflowed.getAndSet(false)) {
+                    send(subscriber, SseEmitter.event().name("resync").data(Map.of("reason", "buffer overflow")));
+                }
+                Event event = subscriber.queue.poll();
+                if (event == null) {
+                    break;
+                }
+                send(subscriber, event.name() == null
+                        ? SseEmitter.event().comment("heartbeat")
+                        : SseEmitter.event().id(Long.toString(event.id())).name(event.name()).data(event.data()));
+                if (subscriber.removed.get()) {
+                    // dropped while the write was stuck
+                    subscriber.emitter.complete();
+                    return;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Closing the schedule event stream of doctor {}: {}", subscriber.key.doctorId(), e.getMessage());
+            remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // an event queued after the last poll but before draining was reset would otherwise wait for the next one
+        if ((!subscriber.queue.isEmpty() || subscriber.overflowed.get()) && subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.sendingSince.set(System.currentTimeMillis());
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            subscriber.sendingSince.set(0);
+        }
+    }
+
+    // Drops the subscribers whose current send has been running for longer than send-timeout. The emitter is not
+    // touched here, since the stuck send holds it; the sender completes it when the write returns.
+    private void dropStalledSubscribers() {
+        long deadline = System.currentTimeMillis() - sendTimeout.toMillis();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> {
+            long since = subscriber.sendingSince.get();
+            if (since != 0 && since < deadline) {
+                logger.debug("Dropping the schedule event stream of doctor {}: send stalled", subscriber.key.doctorId());
+                remove(subscriber);
+            }
+        }));
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.removed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.computeIfPresent(subscriber.key, (key, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+        subscriberCount.decrementAndGet();
+        subscriber.queue.clear();
+    }
+
+    // One sender per subscriber being drained: virtual threads when enabled, otherwise a cached pool whose idle
+    // threads end after a minute
+    private static Executor senders(boolean virtualThreads) {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("schedule-events-sender-");
+        }
+        return Executors.newCachedThreadPool(daemon("schedule-events-sender"));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,66 +1,182 @@
 package com.project.back_end.services;
 
+import com.project.back_end.DTO.Login;
+import com.project.back_end.models.Admin;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AdminRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@org.springframework.stereotype.Service
 public class Service {
-// 1. **@Service Annotation**
-// The @Service annotation marks this class as a service component in Spring. This allows Spring to automatically detect it through component scanning
-// and manage its lifecycle, enabling it to be injected into controllers or other services using @Autowired or constructor injection.
-
-// 2. **Constructor Injection for Dependencies**
-// The constructor injects all required dependencies (TokenService, Repositories, and other Services). This approach promotes loose coupling, improves testability,
-// and ensures that all required dependencies are provided at object creation time.
-
-// 3. **validateToken Method**
-// This method checks if the provided JWT token is valid for a specific user. It uses the TokenService to perform the validation.
-// If the token is invalid or expired, it returns a 401 Unauthorized response with an appropriate error message. This ensures security by preventing
-// unauthorized access to protected resources.
-
-// 4. **validateAdmin Method**
-// This method validates the login credentials for an admin user.
-// - It first searches the admin repository using the provided username.
-// - If an admin is found, it checks if the password matches.
-// - If the password is correct, it generates and returns a JWT token (using the admin’s username) with a 200 OK status.
-// - If the password is incorrect, it returns a 401 Unauthorized status with an error message.
-// - If no admin is found, it also returns a 401 Unauthorized.
-// - If any unexpected error occurs during the process, a 500 Internal Server Error response is returned.
-// This method ensures that only valid admin users can access secured parts of the system.
-
-// 5. **filterDoctor Method**
-// This method provides filtering functionality for doctors based on name, specialty, and available time slots.
-// - It supports various combinations of the three filters.
-// - If none of the filters are provided, it returns all available doctors.
-// This flexible filtering mechanism allows the frontend or consumers of the API to search and narrow down doctors based on user criteria.
-
-// 6. **validateAppointment Method**
-// This method validates if the requested appointment time for a doctor is available.
-// - It first checks if the doctor exists in the repository.
-// - Then, it retrieves the list of available time slots for the doctor on the specified date.
-// - It compares the requested appointment time with the start times of these slots.
-// - If a match is found, it returns 1 (valid appointment time).
-// - If no matching time slot is found, it returns 0 (invalid).
-// - If the doctor doesn’t exist, it returns -1.
-// This logic prevents overlapping or invalid appointment bookings.
-
-// 7. **validatePatient Method**
-// This method checks whether a patient with the same email or phone number already exists in the system.
-// - If a match is found, it returns false (indicating the patient is not valid for new registration).
-// - If no match is found, it returns true.
-// This helps enforce uniqueness constraints on patient records and prevent duplicate entries.
-
-// 8. **validatePatientLogin Method**
-// This method handles login validation for patient users.
-// - It looks up the patient by email.
-// - If found, it checks whether the provided password matches the stored one.
-// - On successful validation, it generates a JWT token and returns it with a 200 OK status.
-// - If the password is incorrect or the patient doesn't exist, it returns a 401 Unauthorized with a relevant error.
-// - If an exception occurs, it returns a 500 Internal Server Error.
-// This method ensures only legitimate patients can log in and access their data securely.
-
-// 9. **filterPatient Method**
-// This method filters a patient's appointment history based on condition and doctor name.
-// - It extracts the email from the JWT token to identify the patient.
-// - Depending on which filters (condition, doctor name) are provided, it delegates the filtering logic to PatientService.
-// - If no filters are provided, it retrieves all appointments for the patient.
-// This flexible method supports patient-specific querying and enhances user experience on the client side.
 
+    private final TokenService tokenService;
+    private final AdminRepository adminRepository;
+    private final DoctorRepository doctorRepository;
+    private final PatientRepository patientRepository;
+    private final DoctorService doctorService;
+    private final PatientService patientService;
+    private final PasswordService passwordService;
+    private final AppointmentSlotIndex slotIndex;
+
+    public Service(TokenService tokenService,
+                   AdminRepository adminRepository,
+                   DoctorRepository doctorRepository,
+                   PatientRepository patientRepository,
+                   DoctorService doctorService,
+                   PatientService patientService,
+                   PasswordService passwordService,
+                   AppointmentSlotIndex slotIndex) {
+        this.tokenService = tokenService;
+        this.adminRepository = adminRepository;
+        this.doctorRepository = doctorRepository;
+        this.patientRepository = patientRepository;
+        this.doctorService = doctorService;
+        this.patientService = patientService;
+        this.passwordService = passwordService;
+        this.slotIndex = slotIndex;
+    }
+
+    // Checks the token for the given role; the body is empty when the token is valid,
+    // otherwise it holds the error returned with 401 Unauthorized
+    public ResponseEntity<Map<String, String>> validateToken(String token, String user) {
+        Map<String, String> response = new HashMap<>();
+        if (!tokenService.validateToken(token, user)) {
+            response.put("error", "Invalid or expired token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    // Validates an admin's login credentials and returns a token on success.
+    // The password check runs on the hashing executor; 503 is returned when it is saturated.
+    public CompletableFuture<ResponseEntity<Map<String, String>>> validateAdmin(Admin receivedAdmin) {
+        try {
+            Admin admin = adminRepository.findByUsername(receivedAdmin.getUsername());
+            if (admin == null) {
+                return CompletableFuture.completedFuture(loginRejected("Invalid username or password"));
+            }
+            return passwordService.verify(receivedAdmin.getPassword(), admin.getPassword(),
+                            hash -> adminRepository.updatePassword(admin.getId(), hash))
+                    .thenApply(matches -> matches
+                            ? loginAccepted(tokenService.generateToken(admin.getUsername(), "admin", admin.getId()))
+                            : loginRejected("Invalid username or password"))
+                    .exceptionally(this::loginFailed);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(loginFailed(e));
+        }
+    }
+
+    // Filters doctors by any combination of name, specialty and AM/PM availability.
+    // Missing filters (null, empty or "null") are ignored; without filters every doctor is returned, one page at a time.
+    public Map<String, Object> filterDoctor(String name, String specialty, String time, int page, int size) {
+        return doctorService.filterDoctors(isProvided(name) ? name : null,
+                isProvided(specialty) ? specialty : null,
+                isProvided(time) ? time : null,
+                page, size);
+    }
+
+    // Checks the requested appointment time against the doctor's slots and the slot index:
+    // 1 if the time starts one of the doctor's slots and is not booked, 0 if it is not, -1 if the doctor does not exist
+    @Transactional(readOnly = true)
+    public int validateAppointment(Appointment appointment) {
+        if (appointment.getDoctor() == null || appointment.getDoctor().getId() == null) {
+            return -1;
+        }
+        Doctor doctor = doctorRepository.findWithAvailableTimesById(appointment.getDoctor().getId()).orElse(null);
+        if (doctor == null) {
+            return -1;
+        }
+        LocalDateTime time = appointment.getAppointmentTime();
+        int minute = time.getHour() * 60 + time.getMinute();
+        if (!doctor.getSlotSchedule().startsAt(minute) || slotIndex.isBooked(doctor.getId(), time)) {
+            return 0;
+        }
+        return 1;
+    }
+
+    // Returns true if no patient is registered with the same email or phone number
+    public boolean validatePatient(Patient patient) {
+        return patientRepository.findByEmailOrPhone(patient.getEmail(), patient.getPhone()) == null;
+    }
+
+    // Validates a patient's login credentials and returns a token on success.
+    // The password check runs on the hashing executor; 503 is returned when it is saturated.
+    public CompletableFuture<ResponseEntity<Map<String, String>>> validatePatientLogin(Login login) {
+        try {
+            Patient patient = patientRepository.findByEmail(login.getEmail());
+            if (patient == null) {
+                return CompletableFuture.completedFuture(loginRejected("Invalid email or password"));
+            }
+            return passwordService.verify(login.getPassword(), patient.getPassword(),
+                            hash -> patientRepository.updatePassword(patient.getId(), hash))
+                    .thenApply(matches -> matches
+                            ? loginAccepted(tokenService.generateToken(patient.getEmail(), "patient", patient.getId()))
+                            : loginRejected("Invalid email or password"))
+                    .exceptionally(this::loginFailed);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(loginFailed(e));
+        }
+    }
+
+    // Filters the appointments of the patient the token was issued to by condition and/or doctor name
+    public ResponseEntity<Map<String, Object>> filterPatient(String condition, String name, String token,
+                                                             String cursor, int size) {
+        Long patientId = patientService.resolvePatientId(token);
+        if (patientId == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Patient not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        boolean hasCondition = isProvided(condition);
+        boolean hasName = isProvided(name);
+
+        if (hasCondition && hasName) {
+            return patientService.filterByDoctorAndCondition(condition, name, patientId);
+        }
+        if (hasCondition) {
+            return patientService.filterByCondition(condition, patientId, cursor, size);
+        }
+        if (hasName) {
+            return patientService.filterByDoctor(name, patientId);
+        }
+        return patientService.getPatientAppointment(patientId, token, cursor, size);
+    }
+
+    private ResponseEntity<Map<String, String>> loginAccepted(String token) {
+        Map<String, String> response = new HashMap<>();
+        response.put("token", token);
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<Map<String, String>> loginRejected(String message) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", message);
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+    }
+
+    private ResponseEntity<Map<String, String>> loginFailed(Throwable error) {
+        Map<String, String> response = new HashMap<>();
+        if (PasswordService.isOverloaded(error)) {
+            response.put("error", "Too many login attempts, please try again shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+        }
+        response.put("error", "Internal server error");
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
 
+    private boolean isProvided(String value) {
+        return value != null && !value.isBlank() && !value.equalsIgnoreCase("null");
+    }
 }
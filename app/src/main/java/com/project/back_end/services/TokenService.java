@@ -1,43 +1,158 @@
 package com.project.back_end.services;
 
+import com.project.back_end.models.Admin;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AdminRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Set;
+
+@Component
 public class TokenService {
-// 1. **@Component Annotation**
-// The @Component annotation marks this class as a Spring component, meaning Spring will manage it as a bean within its application context.
-// This allows the class to be injected into other Spring-managed components (like services or controllers) where it's needed.
-
-// 2. **Constructor Injection for Dependencies**
-// The constructor injects dependencies for `AdminRepository`, `DoctorRepository`, and `PatientRepository`,
-// allowing the service to interact with the database and validate users based on their role (admin, doctor, or patient).
-// Constructor injection ensures that the class is initialized with all required dependencies, promoting immutability and making the class testable.
-
-// 3. **getSigningKey Method**
-// This method retrieves the HMAC SHA key used to sign JWT tokens.
-// It uses the `jwt.secret` value, which is provided from an external source (like application properties).
-// The `Keys.hmacShaKeyFor()` method converts the secret key string into a valid `SecretKey` for signing and verification of JWTs.
-
-// 4. **generateToken Method**
-// This method generates a JWT token for a user based on their email.
-// - The `subject` of the token is set to the user's email, which is used as an identifier.
-// - The `issuedAt` is set to the current date and time.
-// - The `expiration` is set to 7 days from the issue date, ensuring the token expires after one week.
-// - The token is signed using the signing key generated by `getSigningKey()`, making it secure and tamper-proof.
-// The method returns the JWT token as a string.
-
-// 5. **extractEmail Method**
-// This method extracts the user's email (subject) from the provided JWT token.
-// - The token is first verified using the signing key to ensure it hasn’t been tampered with.
-// - After verification, the token is parsed, and the subject (which represents the email) is extracted.
-// This method allows the application to retrieve the user's identity (email) from the token for further use.
-
-// 6. **validateToken Method**
-// This method validates whether a provided JWT token is valid for a specific user role (admin, doctor, or patient).
-// - It first extracts the email from the token using the `extractEmail()` method.
-// - Depending on the role (`admin`, `doctor`, or `patient`), it checks the corresponding repository (AdminRepository, DoctorRepository, or PatientRepository)
-//   to see if a user with the extracted email exists.
-// - If a match is found for the specified user role, it returns true, indicating the token is valid.
-// - If the role or user does not exist, it returns false, indicating the token is invalid.
-// - The method gracefully handles any errors by returning false if the token is invalid or an exception occurs.
-// This ensures secure access control based on the user's role and their existence in the system.
 
+    private static final long EXPIRATION_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    // Signed claims carrying the role and id of the user the token was issued to
+    public static final String ROLE_CLAIM = "role";
+    public static final String USER_ID_CLAIM = "uid";
+
+    private final AdminRepository adminRepository;
+    private final DoctorRepository doctorRepository;
+    private final PatientRepository patientRepository;
+    private final VerifiedTokenCache tokenCache;
+
+    // Derived once from jwt.secret; both are immutable and safe to share across request threads
+    private final SecretKey signingKey;
+    private final JwtParser jwtParser;
+
+    // Roles whose tokens are still checked against the repository (through the cache) to make sure the user exists
+    @Value("${jwt.subject-check.roles:doctor}")
+    private Set<String> subjectCheckRoles;
+
+    public TokenService(AdminRepository adminRepository,
+                        DoctorRepository doctorRepository,
+                        PatientRepository patientRepository,
+                        VerifiedTokenCache tokenCache,
+                        @Value("${jwt.secret}") String secret) {
+        this.adminRepository = adminRepository;
+        this.doctorRepository = doctorRepository;
+        this.patientRepository = patientRepository;
+        this.tokenCache = tokenCache;
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parser().verifyWith(signingKey).build();
+    }
+
+    // Retrieves the HMAC SHA key used to sign and verify JWT tokens
+    public SecretKey getSigningKey() {
+        return signingKey;
+    }
+
+    // Generates a token valid for 7 days whose subject is the user's email (or username for admins)
+    // and which carries the user's role and id as signed claims
+    public String generateToken(String identifier, String role, Long userId) {
+        Date now = new Date();
+        return Jwts.builder()
+                .subject(identifier)
+                .claim(ROLE_CLAIM, role)
+                .claim(USER_ID_CLAIM, userId)
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + EXPIRATION_MILLIS))
+                .signWith(signingKey)
+                .compact();
+    }
+
+    // Extracts the email (subject) from a verified token
+    public String extractEmail(String token) {
+        return extractClaims(token).getSubject();
+    }
+
+    // Extracts the user id from the uid claim, or null for tokens issued without one
+    public Long extractUserId(String token) {
+        Number userId = extractClaims(token).get(USER_ID_CLAIM, Number.class);
+        return userId != null ? userId.longValue() : null;
+    }
+
+    // Extracts the role from the role claim, or null for tokens issued without one
+    public String extractRole(String token) {
+        return extractClaims(token).get(ROLE_CLAIM, String.class);
+    }
+
+    // Validates that the token is signed by us and was issued to a user of the given role.
+    // Tokens carrying role and uid claims are authorized from the claims alone, unless the role is listed in
+    // jwt.subject-check.roles; tokens without claims fall back to looking the subject up in the role's repository.
+    // Tokens that already passed validation are answered from the cache.
+    public boolean validateToken(String token, String user) {
+        try {
+            if (tokenCache.get(token, user) != null) {
+                return true;
+            }
+            long cacheVersion = tokenCache.version();
+            Claims claims = extractClaims(token);
+            String role = claims.get(ROLE_CLAIM, String.class);
+            Number claimedId = claims.get(USER_ID_CLAIM, Number.class);
+            Long userId;
+            if (role != null && claimedId != null) {
+                if (!role.equals(user)) {
+                    return false;
+                }
+                userId = claimedId.longValue();
+                if (subjectCheckRoles.contains(user) && !userId.equals(resolveUserId(claims.getSubject(), user))) {
+                    return false;
+                }
+            } else {
+                userId = resolveUserId(claims.getSubject(), user);
+                if (userId == null) {
+                    return false;
+                }
+            }
+            tokenCache.put(token, user, userId, claims.getExpiration().getTime(), cacheVersion);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // Forgets every cached token of a user, so a removed account is rejected on its next request
+    public void invalidateUser(String user, Long userId) {
+        tokenCache.invalidate(user, userId);
+    }
+
+    public VerifiedTokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+    private Claims extractClaims(String token) {
+        return jwtParser.parseSignedClaims(token).getPayload();
+    }
 
+    // Looks up the id of the user identified by the token subject, or null if there is none
+    private Long resolveUserId(String identifier, String user) {
+        switch (user) {
+            case "admin": {
+                Admin admin = adminRepository.findByUsername(identifier);
+                return admin != null ? admin.getId() : null;
+            }
+            case "doctor": {
+                Doctor doctor = doctorRepository.findByEmail(identifier);
+                return doctor != null ? doctor.getId() : null;
+            }
+            case "patient": {
+                Patient patient = patientRepository.findByEmail(identifier);
+                return patient != null ? patient.getId() : null;
+            }
+            default:
+                return null;
+        }
+    }
 }
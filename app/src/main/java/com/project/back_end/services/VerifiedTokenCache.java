@@ -0,0 +1,177 @@
+package com.project.back_end.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Bounded, TTL based cache of tokens that already passed signature verification and the subject lookup.
+// Entries are keyed by a SHA-256 hash of the token so raw tokens are never kept in memory,
+// and each entry expires at the earlier of the configured TTL and the token's own expiration.
+// Hits, misses, hit ratio and entries are published as jwt.cache.* meters.
+@Component
+public class VerifiedTokenCache {
+
+    // The resolved identity of a verified token
+    public static final class Entry {
+        private final String role;
+        private final Long userId;
+        private final long expiresAtMillis;
+
+        Entry(String role, Long userId, long expiresAtMillis) {
+            this.role = role;
+            this.userId = userId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    // Access ordered so that the least recently used entry is evicted first once the cache is full
+    private final LinkedHashMap<String, Entry> entries;
+
+    // Bumped by every invalidation; a put based on a lookup that started before it is dropped
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public VerifiedTokenCache(ObjectProvider<MeterRegistry> meterRegistry,
+                              @Value("${jwt.cache.max-entries:10000}") int maxEntries,
+                              @Value("${jwt.cache.ttl-seconds:300}") long ttlSeconds) {
+        this(meterRegistry.getIfAvailable(SimpleMeterRegistry::new), maxEntries, ttlSeconds, System::currentTimeMillis);
+    }
+
+    VerifiedTokenCache(MeterRegistry registry, int maxEntries, long ttlSeconds, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > VerifiedTokenCache.this.maxEntries;
+            }
+        };
+        FunctionCounter.builder("jwt.cache.hits", hits, LongAdder::sum)
+                .description("Token validations answered from the cache").register(registry);
+        FunctionCounter.builder("jwt.cache.misses", misses, LongAdder::sum)
+                .description("Token validations that verified the token").register(registry);
+        Gauge.builder("jwt.cache.hit.ratio", this, VerifiedTokenCache::getHitRatio)
+                .description("Share of token validations answered from the cache").register(registry);
+        Gauge.builder("jwt.cache.entries", this, VerifiedTokenCache::size)
+                .description("Cached verified tokens").register(registry);
+    }
+
+    // Returns the cached entry for the token if it was verified for the given role and has not expired
+    public Entry get(String token, String role) {
+        String key = hash(token);
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAtMillis <= now) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry != null && entry.role.equals(role)) {
+                hits.increment();
+                return entry;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    // Returns the version to pass to put() for a token whose verification starts now
+    public long version() {
+        return version.get();
+    }
+
+    // Caches a verified token, never beyond the token's own expiration. Nothing is cached if an invalidation
+    // happened since version was read, as the verification may have seen a user that was removed meanwhile.
+    public void put(String token, String role, Long userId, long tokenExpiresAtMillis, long version) {
+        long now = clock.getAsLong();
+        long expiresAt = Math.min(now + ttlMillis, tokenExpiresAtMillis);
+        if (maxEntries <= 0 || expiresAt <= now) {
+            return;
+        }
+        String key = hash(token);
+        synchronized (entries) {
+            if (this.version.get() == version) {
+                entries.put(key, new Entry(role, userId, expiresAt));
+            }
+        }
+    }
+
+    // Drops every cached token that resolved to the given user, e.g. after the user was deleted
+    public void invalidate(String role, Long userId) {
+        synchronized (entries) {
+            version.incrementAndGet();
+            entries.values().removeIf(entry -> entry.role.equals(role) && entry.userId.equals(userId));
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hashed = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hashed);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
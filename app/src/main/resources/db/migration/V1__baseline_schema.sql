@@ -0,0 +1,72 @@
+-- Schema as previously created by spring.jpa.hibernate.ddl-auto=update. Existing databases are baselined at this
+-- version (spring.flyway.baseline-on-migrate) and only run the later migrations. Constraint names are the ones
+-- Hibernate generated, so they match the existing databases.
+
+create table admin (
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    password varchar(255) not null,
+    username varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table doctor (
+    is_deleted bit not null,
+    years_of_experience integer,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    phone varchar(15) not null,
+    uuid varchar(36) not null,
+    specialty varchar(50) not null,
+    email varchar(100) not null,
+    name varchar(100) not null,
+    clinic_address varchar(255),
+    password varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table doctor_available_times (
+    doctor_id bigint not null,
+    available_times varchar(20)
+) engine=InnoDB;
+
+create table patient (
+    date_of_birth date not null,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    phone varchar(15) not null,
+    uuid varchar(36) not null,
+    email varchar(100) not null,
+    name varchar(100) not null,
+    address varchar(255) not null,
+    password varchar(255) not null,
+    gender enum ('FEMALE','MALE','OTHER') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table appointment (
+    is_deleted bit not null,
+    appointment_time datetime(6) not null,
+    created_at datetime(6),
+    doctor_id bigint not null,
+    id bigint not null auto_increment,
+    patient_id bigint not null,
+    updated_at datetime(6),
+    uuid varchar(36) not null,
+    cancel_reason TEXT,
+    status enum ('CANCELLED','COMPLETED','SCHEDULED') not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table admin add constraint UKgfn44sntic2k93auag97juyij unique (username);
+alter table doctor add constraint UK50s6vnu8kr1kqhl2i5q0f78le unique (uuid);
+alter table doctor add constraint UKjdtgexk368pq6d2yb3neec59d unique (email);
+alter table patient add constraint UKl21vs5pckfc3y5x0vgob92yu9 unique (uuid);
+alter table patient add constraint UKbawli8xm92f30ei6x9p3h8eju unique (email);
+alter table appointment add constraint UKax5xe41hcl38kiq3tr9oapt5y unique (uuid);
+
+alter table appointment add constraint FKoeb98n82eph1dx43v3y2bcmsl foreign key (doctor_id) references doctor (id);
+alter table appointment add constraint FK4apif2ewfyf14077ichee8g06 foreign key (patient_id) references patient (id);
+alter table doctor_available_times add constraint FKdgs10srq75djpwnb9c22k3lmk foreign key (doctor_id) references doctor (id);
@@ -0,0 +1,32 @@
+-- active_slot is 1 while an appointment holds its slot and NULL once cancelled; the unique key rejects a second
+-- booking of the same doctor and time, while cancelled rows (NULL never collides) keep their history.
+alter table appointment add column active_slot bit;
+
+-- Databases may already hold double bookings, which would make the unique key fail. The first booking (lowest id)
+-- of each doctor and time keeps the slot; the later ones are cancelled with a reason naming the one that was kept.
+-- The ids go through a scratch table because MySQL cannot update a table it selects from in a subquery.
+create table appointment_double_booking as
+select a.id, k.kept_id
+from appointment a
+join (select doctor_id, appointment_time, min(id) as kept_id
+      from appointment
+      where status <> 'CANCELLED'
+      group by doctor_id, appointment_time
+      having count(*) > 1) k on k.doctor_id = a.doctor_id and k.appointment_time = a.appointment_time
+where a.status <> 'CANCELLED' and a.id <> k.kept_id;
+update appointment
+set status = 'CANCELLED',
+    cancel_reason = concat('Double booking cancelled by migration V2; the slot is kept by appointment ',
+            (select d.kept_id from appointment_double_booking d where d.id = appointment.id))
+where id in (select d.id from appointment_double_booking d);
+drop table appointment_double_booking;
+
+update appointment set active_slot = 1 where status <> 'CANCELLED';
+alter table appointment add constraint uk_appointment_doctor_time_active unique (doctor_id, appointment_time, active_slot);
+
+-- Pooled sequence for appointment ids (allocation size 50), emulated by a table on MySQL. Hibernate hands out the
+-- 50 ids ending at next_val, so it starts 50 above the current ids.
+create table appointment_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into appointment_seq (next_val) select coalesce(max(id), 0) + 50 from appointment;
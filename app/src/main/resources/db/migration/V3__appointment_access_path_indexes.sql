@@ -0,0 +1,12 @@
+-- Indexes for the queries in AppointmentRepository. The unique key (doctor_id, appointment_time, active_slot) from
+-- V2 already serves the doctor paths: the day views, the booked-slot lookups (covering, they filter on active_slot)
+-- and deleteAllByDoctorId. The uuid columns are unique since V1.
+
+-- Patient appointment pages ordered by (appointment_time, id), and the doctor-name filters joined on patient_id
+create index idx_appointment_patient_time on appointment (patient_id, appointment_time);
+
+-- Past/future pages: equality on status, then the same keyset order
+create index idx_appointment_patient_status_time on appointment (patient_id, status, appointment_time);
+
+-- findByEmailOrPhone at registration; email is already unique, so MySQL can merge both indexes
+create index idx_patient_phone on patient (phone);
@@ -0,0 +1,3 @@
+-- Background sweep of ended appointments (AppointmentSweeper): equality on status, then a range scan in
+-- appointment_time order, so each chunk reads only the rows it updates.
+create index idx_appointment_status_time on appointment (status, appointment_time);
@@ -0,0 +1,27 @@
+-- Cold storage for completed and cancelled appointments older than the archive horizon (AppointmentArchiver).
+-- Range-partitioned by month of appointment_time: old months can be dropped or exported whole, and range reads
+-- only touch the partitions they need. MySQL requires the partitioning column in every unique key and does not
+-- allow foreign keys on partitioned tables, hence the (id, appointment_time) primary key and plain id columns.
+-- Monthly partitions are added by the archiver (REORGANIZE PARTITION p_max) before it moves rows into them;
+-- p_old holds everything before 2024.
+create table appointment_archive (
+    id bigint not null,
+    uuid varchar(36) not null,
+    doctor_id bigint not null,
+    patient_id bigint not null,
+    appointment_time datetime(6) not null,
+    status enum ('CANCELLED','COMPLETED','SCHEDULED') not null,
+    cancel_reason TEXT,
+    is_deleted bit not null,
+    created_at datetime(6),
+    updated_at datetime(6),
+    archived_at datetime(6) not null,
+    primary key (id, appointment_time),
+    key idx_appointment_archive_patient_time (patient_id, appointment_time),
+    key idx_appointment_archive_doctor_time (doctor_id, appointment_time),
+    key idx_appointment_archive_time (appointment_time)
+) engine=InnoDB
+partition by range columns (appointment_time) (
+    partition p_old values less than ('2024-01-01'),
+    partition p_max values less than (maxvalue)
+);
@@ -1,6 +1,10 @@
 // patientRecordRow.js
-export function createPatientRecordRow(patient) {
+// prescription is the appointment's prescription summary, null when it has none or it could not be loaded
+export function createPatientRecordRow(patient, prescription) {
   const tr = document.createElement("tr");
+  if (prescription) {
+    tr.title = `${prescription.medication} - ${prescription.dosage}`;
+  }
   tr.innerHTML = `
       <td class="patient-id">${patient.appointmentDate}</td>
       <td>${patient.id}</td>
@@ -43,11 +43,25 @@
     - Loop through each appointment and construct a 'patient' object with id, name, phone, and email
     - Call createPatientRow to generate a table row for the appointment
     - Append each row to the table body
+    - Fetch the prescriptions of all rows with one getPrescriptions call (not one request per row)
+      and mark the rows whose appointment id is in the result
 
   Step 5: Catch and handle any errors during fetch:
     - Show a message row: "Error loading appointments. Try again later."
 
 
+  Function: watchAppointments
+  Purpose: Keep the displayed day current without polling
+
+  Step 1: Close the previous subscription, then call subscribeToSchedule with selectedDate and token
+  Step 2: On "booked" and "updated", add or replace the row of the appointment (the event data is the
+          appointment); remove it if it no longer belongs to the selected day
+  Step 3: On "cancelled", remove the row with the given appointmentId
+  Step 4: On "prescription-added", mark the row of the given appointmentId as prescribed
+  Step 5: On "resync", call loadAppointments() again
+  Call watchAppointments() after every loadAppointments() triggered by a date change
+
+
   When the page is fully loaded (DOMContentLoaded):
     - Call renderContent() (assumes it sets up the UI layout)
     - Call loadAppointments() to display today's appointments by default
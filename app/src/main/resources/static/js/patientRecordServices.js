@@ -1,5 +1,5 @@
 // patientRecordServices.js
-import { getPatientAppointments } from "./services/patientServices.js";
+import { getPatientRecord } from "./services/patientServices.js";
 import { createPatientRecordRow } from './components/patientRecordRow.js';
 
 const tableBody = document.getElementById("patientTableBody");
@@ -15,13 +15,17 @@ async function initializePage() {
   try {
     if (!token) throw new Error("No token found");
 
-    const appointmentData = await getPatientAppointments(patientId, token, "doctor") || [];
+    // Appointments and their prescriptions come back in one call
+    const record = await getPatientRecord(patientId, token, "doctor");
+    if (!record) throw new Error("Patient record unavailable");
+    if (record.partial) {
+      console.warn("Prescriptions could not be loaded in time, showing appointments only");
+    }
 
     // Filter by both patientId and doctorId
-    const filteredAppointments = appointmentData.filter(app =>
-      app.doctorId == doctorId);
-    console.log(filteredAppointments)
-    renderAppointments(filteredAppointments);
+    const filteredRecords = record.records.filter(entry =>
+      entry.appointment.doctorId == doctorId);
+    renderAppointments(filteredRecords);
   } catch (error) {
     console.error("Error loading appointments:", error);
     alert("❌ Failed to load your appointments.");
@@ -41,8 +45,8 @@ function renderAppointments(appointments) {
     return;
   }
 
-  appointments.forEach(appointment => {
-    const row = createPatientRecordRow(appointment);
+  appointments.forEach(({ appointment, prescription }) => {
+    const row = createPatientRecordRow(appointment, prescription);
     tableBody.appendChild(row);
   });
 }
@@ -60,3 +60,14 @@ export async function updateAppointment(appointment, token) {
     };
   }
 }
+
+// Subscribes the doctor dashboard to the changes of the selected day instead of re-fetching it.
+// handlers maps event names (booked, updated, cancelled, prescription-added, resync) to callbacks
+// receiving the parsed event data; call close() on the returned EventSource when the date changes.
+export function subscribeToSchedule(date, token, handlers) {
+  const source = new EventSource(`${APPOINTMENT_API}/events/${date}/${token}`);
+  for (const [name, handler] of Object.entries(handlers)) {
+    source.addEventListener(name, event => handler(JSON.parse(event.data)));
+  }
+  return source;
+}
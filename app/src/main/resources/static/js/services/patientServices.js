@@ -71,6 +71,23 @@ export async function getPatientAppointments(id, token, user) {
   }
 }
 
+// Returns { records, nextCursor, partial }: one page of appointments, each with its prescription summary (or null);
+// partial is true when the prescriptions could not be loaded in time
+export async function getPatientRecord(id, token, user, cursor) {
+  try {
+    const query = cursor ? `?cursor=${encodeURIComponent(cursor)}` : "";
+    const response = await fetch(`${PATIENT_API}/record/${id}/${user}/${token}${query}`);
+    if (response.ok) {
+      return await response.json();
+    }
+    return null;
+  }
+  catch (error) {
+    console.error("Error fetching patient record:", error);
+    return null;
+  }
+}
+
 export async function filterAppointments(condition, name, token) {
   try {
     const response = await fetch(`${PATIENT_API}/filter/${condition}/${name}/${token}`, {
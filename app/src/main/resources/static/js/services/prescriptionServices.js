@@ -44,3 +44,14 @@ export async function getPrescription(appointmentId, token) {
     throw error;
   }
 }
+
+// Fetches the prescriptions of many appointments in one request (up to 100 ids);
+// returns an object keyed by appointment id, without the appointments that have none
+export async function getPrescriptions(appointmentIds, token) {
+  const response = await fetch(`${PRESCRITION_API}/appointments/${token}?ids=${appointmentIds.join(",")}`);
+  if (!response.ok) {
+    throw new Error("Unable to fetch prescriptions");
+  }
+  const result = await response.json();
+  return result.prescriptions;
+}
@@ -0,0 +1,78 @@
+package com.project.back_end.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The gate hands out at most one connection per permit, gets a permit back when a connection is closed (once, even
+// if closed twice or if the pool fails), times out callers that find every permit taken, and keeps the Hikari pool
+// reachable for its metrics.
+class ConnectionGateTest {
+
+    private DataSource pool;
+    private ConnectionGate gate;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        gate = new ConnectionGate(pool, 2, Duration.ofMillis(100));
+    }
+
+    @Test
+    void waitsForAClosedConnection() throws SQLException {
+        Connection first = gate.getConnection();
+        Connection second = gate.getConnection();
+        assertEquals(0, gate.getAvailable());
+        assertThrows(SQLTransientConnectionException.class, gate::getConnection);
+
+        first.close();
+        first.close();
+        assertEquals(1, gate.getAvailable());
+        Connection third = gate.getConnection();
+        assertThrows(SQLTransientConnectionException.class, gate::getConnection);
+
+        second.close();
+        third.close();
+        assertEquals(2, gate.getAvailable());
+        verify(pool, times(3)).getConnection();
+    }
+
+    @Test
+    void releasesThePermitWhenThePoolFails() throws SQLException {
+        when(pool.getConnection()).thenThrow(new SQLTransientConnectionException("pool exhausted"));
+
+        assertThrows(SQLTransientConnectionException.class, gate::getConnection);
+        assertEquals(2, gate.getAvailable());
+    }
+
+    @Test
+    void keepsThePoolAndTheGuardedConnectionReachable() throws SQLException {
+        // the pool metrics and health checks find the Hikari pool behind the gate
+        try (HikariDataSource hikari = new HikariDataSource()) {
+            ConnectionGate gated = new ConnectionGate(hikari, 1, Duration.ofMillis(100));
+            assertSame(hikari, DataSourceUnwrapper.unwrap(gated, HikariConfigMXBean.class, HikariDataSource.class));
+        }
+        // unwrapping a connection must not bypass the permit release
+        Connection connection = gate.getConnection();
+        assertSame(connection, connection.unwrap(Connection.class));
+        connection.close();
+        assertEquals(2, gate.getAvailable());
+    }
+}
@@ -0,0 +1,104 @@
+package com.project.back_end.services;
+
+import com.project.back_end.controllers.DoctorController;
+import com.project.back_end.controllers.PatientController;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Signups and doctor updates answer 503 with Retry-After when the hashing executor is saturated, like the logins,
+// and a doctor update only hashes a newly given password.
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.scheduling.enabled=false"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class AccountPasswordTest {
+
+    private static final String STORED_HASH = "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z6tH4QqPbZT6t0v1fUt0VfDy";
+
+    @Autowired
+    private DoctorController doctorController;
+
+    @Autowired
+    private PatientController patientController;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    @BeforeEach
+    void setUp() {
+        when(tokenService.validateToken("token", "admin")).thenReturn(true);
+    }
+
+    @Test
+    void answers503WhenHashingIsSaturated() {
+        when(passwordService.encode(anyString())).thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException()));
+
+        assertBusy(doctorController.saveDoctor(
+                new Doctor("Busy Doctor", "Cardiologist", "busy@example.com", "secret1", "555-555-5555"), "token"));
+        assertBusy(patientController.createPatient(new Patient("Busy Patient", "busy@example.com", "secret1",
+                "555-555-5555", "1 Main Street", LocalDate.of(1990, 1, 1), Patient.Gender.OTHER)));
+
+        Doctor doctor = doctorRepository.save(
+                new Doctor("Stored Doctor", "Cardiologist", "stored@example.com", STORED_HASH, "555-555-5555"));
+        Doctor update = new Doctor("Stored Doctor", "Cardiologist", "stored@example.com", "newSecret", "555-555-5555");
+        update.setId(doctor.getId());
+        assertBusy(doctorController.updateDoctor(update, "token"));
+    }
+
+    @Test
+    void keepsTheStoredHashWhenTheUpdateSendsItBack() {
+        Doctor doctor = doctorRepository.save(
+                new Doctor("Stored Doctor", "Cardiologist", "stored@example.com", STORED_HASH, "555-555-5555"));
+        Doctor update = new Doctor("Renamed Doctor", "Cardiologist", "stored@example.com", STORED_HASH, "555-555-5555");
+        update.setId(doctor.getId());
+
+        assertEquals(HttpStatus.OK, doctorController.updateDoctor(update, "token").getStatusCode());
+        assertEquals(STORED_HASH, doctorRepository.findById(doctor.getId()).orElseThrow().getPassword());
+        verify(passwordService, never()).encode(anyString());
+
+        when(passwordService.encode("newSecret")).thenReturn(CompletableFuture.completedFuture("$2a$10$newHash"));
+        update.setPassword("newSecret");
+        assertEquals(HttpStatus.OK, doctorController.updateDoctor(update, "token").getStatusCode());
+        assertEquals("$2a$10$newHash", doctorRepository.findById(doctor.getId()).orElseThrow().getPassword());
+    }
+
+    private static void assertBusy(ResponseEntity<Map<String, String>> response) {
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+}
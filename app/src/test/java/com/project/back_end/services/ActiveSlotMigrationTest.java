@@ -0,0 +1,115 @@
+package com.project.back_end.services;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Migrates a database holding double bookings from V1 to V2 (on H2 in MySQL mode): the lowest id of each doctor and
+// time keeps the slot, the later bookings are cancelled with a reason and no active_slot, cancelled rows are left
+// alone, and the unique key then rejects a new double booking.
+class ActiveSlotMigrationTest {
+
+    private static final String URL = "jdbc:h2:mem:active-slot-migration;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final LocalDateTime TEN = LocalDateTime.of(2030, 1, 7, 10, 0);
+
+    private Flyway flyway;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        flyway = Flyway.configure()
+                .dataSource(URL, "sa", "")
+                .cleanDisabled(false)
+                .target("1")
+                .load();
+        flyway.clean();
+        flyway.migrate();
+        try (Connection connection = connection()) {
+            connection.createStatement().executeUpdate("insert into doctor (id, is_deleted, phone, uuid, specialty, "
+                    + "email, name, password) values (1, false, '555', 'd1', 'Cardiologist', 'd1@example.com', 'D', 'x'), "
+                    + "(2, false, '555', 'd2', 'Cardiologist', 'd2@example.com', 'D', 'x')");
+            connection.createStatement().executeUpdate("insert into patient (id, date_of_birth, phone, uuid, email, "
+                    + "name, address, password, gender) values (1, '1990-01-01', '555', 'p1', 'p1@example.com', 'P', "
+                    + "'1 Main Street', 'x', 'OTHER')");
+        }
+    }
+
+    @Test
+    void cancelsDoubleBookingsBeforeAddingTheUniqueKey() throws SQLException {
+        insert(10, 1, TEN, "SCHEDULED");
+        insert(11, 1, TEN, "SCHEDULED");
+        insert(12, 1, TEN, "COMPLETED");
+        insert(13, 1, TEN, "CANCELLED");
+        insert(14, 1, TEN.plusMinutes(30), "SCHEDULED");
+        insert(15, 2, TEN, "SCHEDULED");
+
+        Flyway.configure().dataSource(URL, "sa", "").target("2").load().migrate();
+
+        Map<Long, String[]> rows = rows();
+        assertEquals("SCHEDULED", rows.get(10L)[0]);
+        assertEquals("1", rows.get(10L)[1]);
+        for (long id : new long[]{11, 12}) {
+            assertEquals("CANCELLED", rows.get(id)[0]);
+            assertNull(rows.get(id)[1]);
+            assertEquals("Double booking cancelled by migration V2; the slot is kept by appointment 10", rows.get(id)[2]);
+        }
+        assertEquals("CANCELLED", rows.get(13L)[0]);
+        assertNull(rows.get(13L)[1]);
+        assertNull(rows.get(13L)[2]);
+        assertEquals("1", rows.get(14L)[1]);
+        assertEquals("1", rows.get(15L)[1]);
+
+        try (Connection connection = connection()) {
+            assertThrows(SQLException.class, () -> connection.createStatement().executeUpdate("insert into appointment "
+                    + "(id, is_deleted, appointment_time, doctor_id, patient_id, uuid, status, active_slot) values "
+                    + "(16, false, '2030-01-07 10:00:00', 1, 1, 'a16', 'SCHEDULED', 1)"));
+        }
+    }
+
+    private void insert(long id, long doctorId, LocalDateTime time, String status) throws SQLException {
+        try (Connection connection = connection();
+             PreparedStatement statement = connection.prepareStatement("insert into appointment (id, is_deleted, "
+                     + "appointment_time, doctor_id, patient_id, uuid, status) values (?, false, ?, ?, 1, ?, ?)")) {
+            statement.setLong(1, id);
+            statement.setTimestamp(2, Timestamp.valueOf(time));
+            statement.setLong(3, doctorId);
+            statement.setString(4, UUID.randomUUID().toString());
+            statement.setString(5, status);
+            statement.executeUpdate();
+        }
+    }
+
+    // id -> [status, active_slot, cancel_reason]
+    private Map<Long, String[]> rows() throws SQLException {
+        Map<Long, String[]> rows = new HashMap<>();
+        try (Connection connection = connection();
+             ResultSet resultSet = connection.createStatement()
+                     .executeQuery("select id, status, active_slot, cancel_reason from appointment")) {
+            while (resultSet.next()) {
+                Object activeSlot = resultSet.getObject("active_slot");
+                rows.put(resultSet.getLong("id"), new String[]{resultSet.getString("status"),
+                        activeSlot == null ? null : (resultSet.getBoolean("active_slot") ? "1" : "0"),
+                        resultSet.getString("cancel_reason")});
+            }
+        }
+        return rows;
+    }
+
+    private Connection connection() throws SQLException {
+        return DriverManager.getConnection(URL, "sa", "");
+    }
+}
@@ -0,0 +1,178 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentCursor;
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Appointment.AppointmentStatus;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+// Old completed and cancelled appointments move to the archive in batches, everything else stays in the
+// appointment table, and patient listings read the archive only when the requested range reaches back into it.
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.scheduling.enabled=false",
+        "appointment.archive.batch-size=10",
+        // the seeded appointments are in the past, which @Future rejects on persist
+        "spring.jpa.properties.jakarta.persistence.validation.mode=none"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentArchiverTest {
+
+    private static final int OLD_COMPLETED = 25;
+    private static final int OLD_CANCELLED = 3;
+    private static final int OLD_SCHEDULED = 2;
+    private static final int RECENT = 5;
+
+    @Autowired
+    private AppointmentArchiver archiver;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private ArchivedAppointmentRepository archivedAppointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    private final LocalDateTime now = LocalDateTime.now().withMinute(0).withSecond(0).withNano(0);
+    private Long patientId;
+
+    @BeforeEach
+    void setUp() {
+        Patient patient = patientRepository.save(new Patient("Archive Patient", "archive@example.com", "secret",
+                "555-555-5555", "1 Main Street", LocalDate.of(1990, 1, 1), Patient.Gender.OTHER));
+        patientId = patient.getId();
+        Doctor doctor = doctorRepository.save(new Doctor("Archive Doctor", "Cardiologist", "archive@example.com",
+                "secret", "555-555-5555"));
+        LocalDateTime old = now.minusYears(2);
+        int hour = 0;
+        for (int i = 0; i < OLD_COMPLETED; i++) {
+            save(doctor, patient, old.plusHours(hour++), AppointmentStatus.COMPLETED);
+        }
+        for (int i = 0; i < OLD_CANCELLED; i++) {
+            save(doctor, patient, old.plusHours(hour++), AppointmentStatus.CANCELLED);
+        }
+        for (int i = 0; i < OLD_SCHEDULED; i++) {
+            save(doctor, patient, old.plusHours(hour++), AppointmentStatus.SCHEDULED);
+        }
+        for (int i = 0; i < RECENT; i++) {
+            save(doctor, patient, now.minusMonths(1).plusHours(i), AppointmentStatus.COMPLETED);
+        }
+        when(tokenService.extractRole("token")).thenReturn("doctor");
+    }
+
+    @AfterEach
+    void tearDown() {
+        archivedAppointmentRepository.deleteAllInBatch();
+        appointmentRepository.deleteAll();
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+        // a run over the empty tables resets the archiver's watermark for the next test
+        archiver.archive(now);
+    }
+
+    @Test
+    void movesOldFinishedAppointmentsAndListingsSpanBothTables() {
+        assertFalse(archiver.holdsAppointmentsFrom(AppointmentCursor.FIRST.time()));
+
+        assertEquals(OLD_COMPLETED + OLD_CANCELLED, archiver.archive(now));
+        assertEquals(OLD_COMPLETED + OLD_CANCELLED, archivedAppointmentRepository.count());
+        assertEquals(OLD_SCHEDULED + RECENT, appointmentRepository.count());
+        assertEquals(0, archiver.archive(now));
+
+        List<AppointmentDTO> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            Map<String, Object> body = patientService.getPatientAppointment(patientId, "token", cursor, 10).getBody();
+            all.addAll(appointments(body));
+            cursor = (String) body.get("nextCursor");
+        } while (cursor != null);
+        int total = OLD_COMPLETED + OLD_CANCELLED + OLD_SCHEDULED + RECENT;
+        assertEquals(total, all.size());
+        assertEquals(total, new HashSet<>(all.stream().map(AppointmentDTO::getId).toList()).size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getAppointmentTime().isBefore(all.get(i).getAppointmentTime()));
+        }
+        assertEquals("Archive Doctor", all.get(0).getDoctorName());
+
+        Map<String, Object> past = patientService.filterByCondition("past", patientId, null, 100).getBody();
+        assertEquals(OLD_COMPLETED + RECENT, appointments(past).size());
+    }
+
+    @Test
+    void listingsAfterTheArchivedRangeDoNotReadTheArchive() {
+        archiver.archive(now);
+        Map<String, Object> first = patientService.getPatientAppointment(patientId, "token", null,
+                OLD_COMPLETED + OLD_CANCELLED + OLD_SCHEDULED).getBody();
+        String cursor = (String) first.get("nextCursor");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Map<String, Object> rest = patientService.getPatientAppointment(patientId, "token", cursor, 10).getBody();
+        assertEquals(RECENT, appointments(rest).size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private void save(Doctor doctor, Patient patient, LocalDateTime time, AppointmentStatus status) {
+        appointmentRepository.save(new Appointment(doctor, patient, time, status));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AppointmentDTO> appointments(Map<String, Object> body) {
+        return (List<AppointmentDTO>) body.get("appointments");
+    }
+}
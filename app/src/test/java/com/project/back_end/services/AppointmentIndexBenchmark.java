@@ -0,0 +1,269 @@
+package com.project.back_end.services;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Runs the SQL behind the appointment listings against a seeded database, with the schema migrated up to V2
+// ("baseline": only the primary, unique and foreign keys) or to V3 ("indexed": the appointment access path indexes).
+// Prints the EXPLAIN plan of each query before measuring, to check which index it uses.
+// Meant for MySQL: the database given by -Dbench.jdbc.url (default cms_bench on localhost) is cleaned and reseeded.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.project.back_end.services.AppointmentIndexBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AppointmentIndexBenchmark {
+
+    private static final String DOCTOR_DAY_PAGE = "SELECT a.* FROM appointment a WHERE a.doctor_id = ? " +
+            "AND a.appointment_time BETWEEN ? AND ? ORDER BY a.appointment_time, a.id LIMIT 20";
+    private static final String BOOKED_SLOTS = "SELECT a.appointment_time FROM appointment a WHERE a.doctor_id = ? " +
+            "AND a.appointment_time >= ? AND a.appointment_time < ? AND a.active_slot = 1";
+    private static final String PATIENT_PAGE = "SELECT a.* FROM appointment a WHERE a.patient_id = ? " +
+            "ORDER BY a.appointment_time, a.id LIMIT 20";
+    private static final String PATIENT_STATUS_PAGE = "SELECT a.* FROM appointment a WHERE a.patient_id = ? " +
+            "AND a.status = ? ORDER BY a.appointment_time, a.id LIMIT 20";
+    private static final String PATIENT_DOCTOR_NAME = "SELECT a.* FROM appointment a JOIN doctor d ON d.id = a.doctor_id " +
+            "WHERE a.patient_id = ? AND LOWER(d.name) LIKE ?";
+
+    private static final int APPOINTMENTS_PER_DOCTOR = 2000;
+    private static final int APPOINTMENTS_PER_PATIENT = 50;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"baseline", "indexed"})
+    public String schema;
+
+    private Connection connection;
+    private int doctors;
+    private int patients;
+    private int days;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = System.getProperty("bench.jdbc.url",
+                "jdbc:mysql://localhost:3306/cms_bench?useSSL=false&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true");
+        String user = System.getProperty("bench.jdbc.user", "root");
+        String password = System.getProperty("bench.jdbc.password", "root");
+        Flyway flyway = Flyway.configure()
+                .dataSource(url, user, password)
+                .cleanDisabled(false)
+                .target("baseline".equals(schema) ? "2" : "3")
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        connection = DriverManager.getConnection(url, user, password);
+        doctors = Math.max(1, rows / APPOINTMENTS_PER_DOCTOR);
+        patients = Math.max(1, rows / APPOINTMENTS_PER_PATIENT);
+        days = Math.max(1, rows / (doctors * 8));
+        seed();
+        Timestamp from = Timestamp.valueOf(FIRST_DAY.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(FIRST_DAY.plusDays(1).atStartOfDay());
+        explain(DOCTOR_DAY_PAGE, 1L, from, to);
+        explain(BOOKED_SLOTS, 1L, from, to);
+        explain(PATIENT_PAGE, 1L);
+        explain(PATIENT_STATUS_PAGE, 1L, "SCHEDULED");
+        explain(PATIENT_DOCTOR_NAME, 1L, "%doctor 1%");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int doctorDayPage() throws SQLException {
+        LocalDate day = randomDay();
+        try (PreparedStatement statement = connection.prepareStatement(DOCTOR_DAY_PAGE)) {
+            statement.setLong(1, randomDoctor());
+            statement.setTimestamp(2, Timestamp.valueOf(day.atStartOfDay()));
+            statement.setTimestamp(3, Timestamp.valueOf(day.atTime(23, 59, 59)));
+            return count(statement);
+        }
+    }
+
+    @Benchmark
+    public int bookedSlots() throws SQLException {
+        LocalDate day = randomDay();
+        try (PreparedStatement statement = connection.prepareStatement(BOOKED_SLOTS)) {
+            statement.setLong(1, randomDoctor());
+            statement.setTimestamp(2, Timestamp.valueOf(day.atStartOfDay()));
+            statement.setTimestamp(3, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+            return count(statement);
+        }
+    }
+
+    @Benchmark
+    public int patientPage() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(PATIENT_PAGE)) {
+            statement.setLong(1, randomPatient());
+            return count(statement);
+        }
+    }
+
+    @Benchmark
+    public int patientStatusPage() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(PATIENT_STATUS_PAGE)) {
+            statement.setLong(1, randomPatient());
+            statement.setString(2, "SCHEDULED");
+            return count(statement);
+        }
+    }
+
+    @Benchmark
+    public int patientDoctorName() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(PATIENT_DOCTOR_NAME)) {
+            statement.setLong(1, randomPatient());
+            statement.setString(2, "%doctor 1%");
+            return count(statement);
+        }
+    }
+
+    // Doctors with 8 hourly slots a day, each slot booked once by a random patient, a tenth of them cancelled
+    private void seed() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement doctor = connection.prepareStatement("INSERT INTO doctor (id, name, specialty, email, " +
+                "password, phone, uuid, is_deleted) VALUES (?, ?, 'Cardiologist', ?, 'secret', '555-555-5555', ?, 0)")) {
+            for (int i = 1; i <= doctors; i++) {
+                doctor.setLong(1, i);
+                doctor.setString(2, "Doctor " + i);
+                doctor.setString(3, "doctor" + i + "@example.com");
+                doctor.setString(4, UUID.randomUUID().toString());
+                doctor.addBatch();
+            }
+            doctor.executeBatch();
+        }
+        try (PreparedStatement patient = connection.prepareStatement("INSERT INTO patient (id, name, email, password, " +
+                "phone, address, date_of_birth, gender, uuid) VALUES (?, ?, ?, 'secret', '555-555-5555', '1 Main Street', " +
+                "'1990-01-01', 'OTHER', ?)")) {
+            for (int i = 1; i <= patients; i++) {
+                patient.setLong(1, i);
+                patient.setString(2, "Patient " + i);
+                patient.setString(3, "patient" + i + "@example.com");
+                patient.setString(4, UUID.randomUUID().toString());
+                patient.addBatch();
+                if (i % 1000 == 0) {
+                    patient.executeBatch();
+                }
+            }
+            patient.executeBatch();
+        }
+        Random random = new Random(42);
+        try (PreparedStatement appointment = connection.prepareStatement("INSERT INTO appointment (id, doctor_id, " +
+                "patient_id, appointment_time, status, active_slot, uuid, is_deleted) VALUES (?, ?, ?, ?, ?, ?, ?, 0)")) {
+            long id = 0;
+            for (int day = 0; day < days && id < rows; day++) {
+                for (int doctor = 1; doctor <= doctors && id < rows; doctor++) {
+                    for (int hour = 9; hour < 17 && id < rows; hour++) {
+                        boolean cancelled = random.nextInt(10) == 0;
+                        LocalDateTime time = FIRST_DAY.plusDays(day).atTime(hour, 0);
+                        appointment.setLong(1, ++id);
+                        appointment.setLong(2, doctor);
+                        appointment.setLong(3, 1 + random.nextInt(patients));
+                        appointment.setTimestamp(4, Timestamp.valueOf(time));
+                        appointment.setString(5, cancelled ? "CANCELLED" : time.isBefore(LocalDateTime.now()) ? "COMPLETED" : "SCHEDULED");
+                        if (cancelled) {
+                            appointment.setNull(6, java.sql.Types.BIT);
+                        } else {
+                            appointment.setBoolean(6, true);
+                        }
+                        appointment.setString(7, UUID.randomUUID().toString());
+                        appointment.addBatch();
+                        if (id % 1000 == 0) {
+                            appointment.executeBatch();
+                            connection.commit();
+                        }
+                    }
+                }
+            }
+            appointment.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (PreparedStatement analyze = connection.prepareStatement("ANALYZE TABLE appointment, doctor, patient")) {
+            analyze.execute();
+        } catch (SQLException e) {
+            // statistics are refreshed automatically by databases without ANALYZE TABLE
+        }
+    }
+
+    private void explain(String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                System.out.println("[" + schema + "] " + sql);
+                while (resultSet.next()) {
+                    StringBuilder row = new StringBuilder("    ");
+                    for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                        row.append(metaData.getColumnLabel(column)).append('=').append(resultSet.getString(column)).append(' ');
+                    }
+                    System.out.println(row);
+                }
+            }
+        }
+    }
+
+    private static int count(PreparedStatement statement) throws SQLException {
+        int count = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long randomDoctor() {
+        return 1 + ThreadLocalRandom.current().nextInt(doctors);
+    }
+
+    private long randomPatient() {
+        return 1 + ThreadLocalRandom.current().nextInt(patients);
+    }
+
+    private LocalDate randomDay() {
+        return FIRST_DAY.plusDays(ThreadLocalRandom.current().nextInt(days));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AppointmentIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,135 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.PrescriptionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+// Appointment listings are built from constructor projections: each page must cost a single SELECT and
+// no entity may be loaded, whatever the page size.
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.scheduling.enabled=false"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(PatientService.class)
+class AppointmentQueryCountTest {
+
+    private static final int DOCTORS = 3;
+    private static final int DAYS = 5;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private AppointmentArchiver archiver;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    private Statistics statistics;
+    private Long patientId;
+
+    @BeforeEach
+    void setUp() {
+        Patient patient = new Patient("Test Patient", "patient@example.com", "secret", "555-555-5555",
+                "1 Main Street", LocalDate.of(1990, 1, 1), Patient.Gender.OTHER);
+        entityManager.persist(patient);
+        patientId = patient.getId();
+        for (int i = 0; i < DOCTORS; i++) {
+            Doctor doctor = new Doctor("Doctor " + i, "Cardiologist", "doctor" + i + "@example.com", "secret", "555-555-5555");
+            entityManager.persist(doctor);
+            for (int day = 1; day <= DAYS; day++) {
+                entityManager.persist(new Appointment(doctor, patient, LocalDateTime.now().plusDays(day).withHour(9 + i)
+                        .withMinute(0).withSecond(0).withNano(0), Appointment.AppointmentStatus.SCHEDULED));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        when(tokenService.extractRole("token")).thenReturn("doctor");
+        // loads the archive watermark (one query per process) before counting
+        archiver.holdsAppointmentsFrom(LocalDateTime.now());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void everyPageIsOneQueryWithoutEntities() {
+        List<AppointmentDTO> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            statistics.clear();
+            Map<String, Object> body = patientService.getPatientAppointment(patientId, "token", cursor, 4).getBody();
+            assertEquals(1, statistics.getPrepareStatementCount());
+            assertEquals(0, statistics.getEntityLoadCount());
+            seen.addAll(appointments(body));
+            cursor = (String) body.get("nextCursor");
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(4, pages);
+        assertEquals(DOCTORS * DAYS, seen.size());
+        Comparator<AppointmentDTO> keysetOrder = Comparator.comparing(AppointmentDTO::getAppointmentTime)
+                .thenComparing(AppointmentDTO::getId);
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(keysetOrder.compare(seen.get(i - 1), seen.get(i)) < 0);
+        }
+        assertEquals("Test Patient", seen.get(0).getPatientName());
+        assertEquals(seen.get(0).getAppointmentTime().plusHours(1), seen.get(0).getEndTime());
+    }
+
+    @Test
+    void doctorNameFilterIsOneQueryWithoutEntities() {
+        Map<String, Object> body = patientService.filterByDoctorAndCondition("future", "doctor 1", patientId).getBody();
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(DAYS, appointments(body).size());
+        assertNull(body.get("nextCursor"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AppointmentDTO> appointments(Map<String, Object> body) {
+        return (List<AppointmentDTO>) body.get("appointments");
+    }
+}
@@ -0,0 +1,139 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Booked and freed slots reach the index only once their transaction commits, the index keeps the most recently
+// used max-entries days, invalidating a doctor drops all of their days, and a day loaded while a booking of that
+// day commits is returned but not kept, so the index never holds a bitset that misses the booking.
+class AppointmentSlotIndexTest {
+
+    private static final Long DOCTOR = 1L;
+    private static final Long OTHER_DOCTOR = 2L;
+
+    private final LocalDate day = LocalDate.of(2030, 1, 7);
+    private AppointmentRepository appointmentRepository;
+    private AppointmentSlotIndex index;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findBookedTimesByDoctorIdBetween(any(), any(), any())).thenReturn(List.of());
+        when(appointmentRepository.findBookedTimesByDoctorIdBetween(eq(DOCTOR), eq(day.atStartOfDay()), any()))
+                .thenReturn(List.of(day.atTime(10, 0)));
+        index = new AppointmentSlotIndex(appointmentRepository, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void appliesBookingsAndCancellationsAfterCommit() {
+        assertTrue(index.isBooked(DOCTOR, day.atTime(10, 0)));
+        TransactionSynchronizationManager.initSynchronization();
+
+        index.markBooked(DOCTOR, day.atTime(11, 30));
+        index.markFree(DOCTOR, day.atTime(10, 0));
+        assertTrue(index.isBooked(DOCTOR, day.atTime(10, 0)));
+        assertFalse(index.isBooked(DOCTOR, day.atTime(11, 30)));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertFalse(index.isBooked(DOCTOR, day.atTime(10, 0)));
+        assertTrue(index.isBooked(DOCTOR, day.atTime(11, 30)));
+        BitSet expected = new BitSet();
+        expected.set(11 * 60 + 30);
+        assertEquals(expected, index.bookedMinutes(DOCTOR, day));
+        verify(appointmentRepository, times(1)).findBookedTimesByDoctorIdBetween(eq(DOCTOR), any(), any());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedDay() {
+        index.bookedMinutes(DOCTOR, day);
+        index.bookedMinutes(DOCTOR, day.plusDays(1));
+        index.bookedMinutes(DOCTOR, day);
+
+        index.bookedMinutes(DOCTOR, day.plusDays(2));
+        assertEquals(2, index.size());
+
+        index.bookedMinutes(DOCTOR, day);
+        verify(appointmentRepository, times(1))
+                .findBookedTimesByDoctorIdBetween(eq(DOCTOR), eq(day.atStartOfDay()), any());
+        index.bookedMinutes(DOCTOR, day.plusDays(1));
+        verify(appointmentRepository, times(2))
+                .findBookedTimesByDoctorIdBetween(eq(DOCTOR), eq(day.plusDays(1).atStartOfDay()), any());
+    }
+
+    @Test
+    void invalidatesEveryDayOfADoctorAfterCommit() {
+        index.bookedMinutes(DOCTOR, day);
+        index.bookedMinutes(OTHER_DOCTOR, day);
+        TransactionSynchronizationManager.initSynchronization();
+
+        index.invalidateDoctor(DOCTOR);
+        assertEquals(2, index.size());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(1, index.size());
+        assertTrue(index.isBooked(DOCTOR, day.atTime(10, 0)));
+        verify(appointmentRepository, times(2)).findBookedTimesByDoctorIdBetween(eq(DOCTOR), any(), any());
+        verify(appointmentRepository, times(1)).findBookedTimesByDoctorIdBetween(eq(OTHER_DOCTOR), any(), any());
+    }
+
+    @Test
+    void doesNotKeepADayLoadedWhileABookingOfThatDayCommitted() throws Exception {
+        LocalDateTime booking = day.atTime(14, 0);
+        CountDownLatch querying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // the first query reads the day before the booking commits, the second one sees it
+        when(appointmentRepository.findBookedTimesByDoctorIdBetween(eq(DOCTOR), eq(day.atStartOfDay()), any()))
+                .thenAnswer(invocation -> {
+                    querying.countDown();
+                    release.await();
+                    return List.of(day.atTime(10, 0));
+                })
+                .thenReturn(List.of(day.atTime(10, 0), booking));
+
+        CompletableFuture<Boolean> staleLookup = CompletableFuture.supplyAsync(() -> index.isBooked(DOCTOR, booking));
+        try {
+            assertTrue(querying.await(5, TimeUnit.SECONDS));
+            // outside a transaction the booking applies at once, as after a commit
+            index.markBooked(DOCTOR, booking);
+        } finally {
+            release.countDown();
+        }
+
+        assertFalse(staleLookup.get(5, TimeUnit.SECONDS));
+        assertEquals(0, index.size());
+        assertTrue(index.isBooked(DOCTOR, booking));
+        assertEquals(1, index.size());
+        assertTrue(index.isBooked(DOCTOR, booking));
+        verify(appointmentRepository, times(2)).findBookedTimesByDoctorIdBetween(eq(DOCTOR), any(), any());
+    }
+}
@@ -0,0 +1,124 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Appointment.AppointmentStatus;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Ended scheduled appointments are completed in several chunks; appointments in progress, in the future or
+// cancelled are left alone, and a second run finds nothing left to do.
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.scheduling.enabled=false",
+        "appointment.sweeper.chunk-size=10",
+        // the seeded appointments are in the past, which @Future rejects on persist
+        "spring.jpa.properties.jakarta.persistence.validation.mode=none"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentSweeperTest {
+
+    private static final int ENDED = 25;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private AppointmentSweeper sweeper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    private final LocalDateTime now = LocalDateTime.now().withMinute(0).withSecond(0).withNano(0);
+
+    @BeforeEach
+    void setUp() {
+        Patient patient = patientRepository.save(new Patient("Sweep Patient", "sweep@example.com", "secret",
+                "555-555-5555", "1 Main Street", LocalDate.of(1990, 1, 1), Patient.Gender.OTHER));
+        Doctor doctor = doctorRepository.save(new Doctor("Sweep Doctor", "Cardiologist", "sweep@example.com",
+                "secret", "555-555-5555"));
+        for (int i = 1; i <= ENDED; i++) {
+            appointmentRepository.save(new Appointment(doctor, patient, now.minusHours(i + 1), AppointmentStatus.SCHEDULED));
+        }
+        appointmentRepository.save(new Appointment(doctor, patient, now.minusHours(1).plusMinutes(30), AppointmentStatus.SCHEDULED));
+        appointmentRepository.save(new Appointment(doctor, patient, now.plusHours(2), AppointmentStatus.SCHEDULED));
+        appointmentRepository.save(new Appointment(doctor, patient, now.minusDays(3), AppointmentStatus.CANCELLED));
+    }
+
+    @AfterEach
+    void tearDown() {
+        appointmentRepository.deleteAll();
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void completesEndedAppointmentsInChunks() {
+        assertEquals(ENDED, sweeper.sweep(now));
+
+        Map<AppointmentStatus, Long> byStatus = appointmentRepository.findAll().stream()
+                .collect(Collectors.groupingBy(Appointment::getStatus, Collectors.counting()));
+        assertEquals(ENDED, byStatus.get(AppointmentStatus.COMPLETED));
+        assertEquals(2, byStatus.get(AppointmentStatus.SCHEDULED));
+        assertEquals(1, byStatus.get(AppointmentStatus.CANCELLED));
+
+        assertEquals(0, sweeper.sweep(now));
+
+        DistributionSummary rows = meterRegistry.get("appointment.sweeper.rows").summary();
+        assertEquals(2, rows.count());
+        assertEquals(ENDED, rows.totalAmount());
+        assertEquals(3, meterRegistry.get("appointment.sweeper.chunks").summary().max());
+        assertEquals(ENDED, meterRegistry.get("appointment.sweeper.completed").counter().count());
+    }
+}
@@ -0,0 +1,125 @@
+package com.project.back_end.services;
+
+import com.project.back_end.BackEndApplication;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Books 160 appointments (20 doctors x 8 slots on a fresh day) one request at a time, as the single booking
+// endpoint does (validate, then save and commit each), versus one call to the batch booking API.
+// Runs the application against an in-memory H2 database, so absolute numbers understate the gain on MySQL
+// where every single booking is also a network round trip.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.project.back_end.services.BookingBatchBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BookingBatchBenchmark {
+
+    private static final int DOCTORS = 20;
+    private static final List<String> SLOTS = List.of("09:00-10:00", "10:00-11:00", "11:00-12:00", "13:00-14:00",
+            "14:00-15:00", "15:00-16:00", "16:00-17:00", "17:00-18:00");
+
+    private ConfigurableApplicationContext context;
+    private AppointmentService appointmentService;
+    private Service service;
+    private final List<Doctor> doctors = new ArrayList<>();
+    private Patient patient;
+    private int dayOffset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BackEndApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:booking;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.flyway.enabled=false",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        appointmentService = context.getBean(AppointmentService.class);
+        service = context.getBean(Service.class);
+        patient = context.getBean(PatientRepository.class).save(new Patient("Bench Patient", "bench@example.com",
+                "secret", "555-555-5555", "1 Main Street", LocalDate.of(1990, 1, 1), Patient.Gender.OTHER));
+        DoctorRepository doctorRepository = context.getBean(DoctorRepository.class);
+        for (int i = 0; i < DOCTORS; i++) {
+            Doctor doctor = new Doctor("Doctor " + i, "Cardiologist", "bench" + i + "@example.com", "secret", "555-555-5555");
+            doctor.setAvailableTimes(SLOTS);
+            doctors.add(doctorRepository.save(doctor));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int oneAtATime() {
+        int booked = 0;
+        for (Appointment appointment : nextDay()) {
+            if (service.validateAppointment(appointment) == 1 && appointmentService.bookAppointment(appointment) == 1) {
+                booked++;
+            }
+        }
+        return booked;
+    }
+
+    @Benchmark
+    public int batch() {
+        return (int) appointmentService.bookAppointments(nextDay()).stream()
+                .filter(result -> (int) result.get("status") == 201).count();
+    }
+
+    // One appointment per doctor and slot on a day that has not been booked yet
+    private List<Appointment> nextDay() {
+        LocalDate day = LocalDate.now().plusDays(++dayOffset);
+        List<Appointment> appointments = new ArrayList<>(DOCTORS * SLOTS.size());
+        for (Doctor doctor : doctors) {
+            for (String slot : SLOTS) {
+                Doctor reference = new Doctor();
+                reference.setId(doctor.getId());
+                Patient patientReference = new Patient();
+                patientReference.setId(patient.getId());
+                appointments.add(new Appointment(reference, patientReference,
+                        day.atTime(Integer.parseInt(slot.substring(0, 2)), 0), Appointment.AppointmentStatus.SCHEDULED));
+            }
+        }
+        return appointments;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BookingBatchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
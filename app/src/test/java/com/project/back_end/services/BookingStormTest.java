@@ -0,0 +1,184 @@
+package com.project.back_end.services;
+
+import com.project.back_end.controllers.AppointmentController;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+// Many threads race to book the same slots of a few doctors. Every slot must end up booked exactly once,
+// and the unique key on active slots must reject a double booking that bypasses the booking locks. A patient token
+// only books for its own patient.
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingStormTest {
+
+    private static final int THREADS = 16;
+    private static final int DOCTORS = 4;
+    private static final List<String> SLOTS = List.of("09:00-10:00", "10:00-11:00", "11:00-12:00", "13:00-14:00",
+            "14:00-15:00", "15:00-16:00", "16:00-17:00", "17:00-18:00");
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentController appointmentController;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    private final List<Doctor> doctors = new ArrayList<>();
+    private Patient patient;
+    private LocalDate day;
+
+    @BeforeEach
+    void setUp() {
+        patient = patientRepository.save(new Patient("Storm Patient", "storm@example.com", "secret", "555-555-5555",
+                "1 Main Street", LocalDate.of(1990, 1, 1), Patient.Gender.OTHER));
+        for (int i = 0; i < DOCTORS; i++) {
+            Doctor doctor = new Doctor("Doctor " + i, "Cardiologist", "storm" + i + "@example.com", "secret", "555-555-5555");
+            doctor.setAvailableTimes(SLOTS);
+            doctors.add(doctorRepository.save(doctor));
+        }
+        day = LocalDate.now().plusDays(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        appointmentRepository.deleteAll();
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentBookingsNeverDoubleBookASlot() throws Exception {
+        List<Appointment> requests = new ArrayList<>();
+        for (Doctor doctor : doctors) {
+            for (String slot : SLOTS) {
+                requests.add(new Appointment(doctor, patient, day.atTime(Integer.parseInt(slot.substring(0, 2)), 0),
+                        Appointment.AppointmentStatus.SCHEDULED));
+            }
+        }
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            List<Appointment> order = new ArrayList<>(requests);
+            Collections.shuffle(order);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (Appointment request : order) {
+                    Appointment attempt = new Appointment(request.getDoctor(), request.getPatient(),
+                            request.getAppointmentTime(), Appointment.AppointmentStatus.SCHEDULED);
+                    int result = appointmentService.bookAppointment(attempt);
+                    assertTrue(result != 0, "booking failed with an internal error");
+                    (result == 1 ? booked : conflicts).incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        executor.shutdown();
+
+        int attempts = THREADS * requests.size();
+        System.out.printf("Booking storm: %d attempts by %d threads in %.3f s (%.0f attempts/s), %d booked, %d conflicts%n",
+                attempts, THREADS, seconds, attempts / seconds, booked.get(), conflicts.get());
+
+        assertEquals(requests.size(), booked.get());
+        assertEquals(attempts - requests.size(), conflicts.get());
+        Map<String, Long> perSlot = appointmentRepository.findAll().stream()
+                .collect(Collectors.groupingBy(a -> a.getDoctor().getId() + "@" + a.getAppointmentTime(), Collectors.counting()));
+        assertEquals(requests.size(), perSlot.size());
+        assertTrue(perSlot.values().stream().allMatch(count -> count == 1));
+    }
+
+    @Test
+    void uniqueKeyRejectsADoubleBookingThatBypassesTheLocks() {
+        LocalDateTime time = day.atTime(9, 0);
+        Doctor doctor = doctors.get(0);
+        appointmentRepository.saveAndFlush(new Appointment(doctor, patient, time, Appointment.AppointmentStatus.SCHEDULED));
+        assertThrows(DataIntegrityViolationException.class, () -> appointmentRepository.saveAndFlush(
+                new Appointment(doctor, patient, time, Appointment.AppointmentStatus.SCHEDULED)));
+
+        // cancelled appointments do not hold the slot
+        appointmentRepository.saveAndFlush(new Appointment(doctor, patient, time, Appointment.AppointmentStatus.CANCELLED));
+    }
+
+    @Test
+    void patientTokenOnlyBooksForItsOwnPatient() {
+        when(tokenService.validateToken("own", "patient")).thenReturn(true);
+        when(tokenService.extractUserId("own")).thenReturn(patient.getId());
+        when(tokenService.validateToken("other", "patient")).thenReturn(true);
+        when(tokenService.extractUserId("other")).thenReturn(patient.getId() + 1);
+        LocalDateTime time = day.atTime(9, 0);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, appointmentController.bookAppointment(
+                new Appointment(doctors.get(0), patient, time, Appointment.AppointmentStatus.SCHEDULED), "other").getStatusCode());
+        assertEquals(0, appointmentRepository.count());
+
+        assertEquals(HttpStatus.CREATED, appointmentController.bookAppointment(
+                new Appointment(doctors.get(0), patient, time, Appointment.AppointmentStatus.SCHEDULED), "own").getStatusCode());
+        assertEquals(1, appointmentRepository.count());
+    }
+}
@@ -0,0 +1,181 @@
+package com.project.back_end.services;
+
+import com.project.back_end.config.ConnectionGate;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+// 1,000 clients at once read a patient's appointments through the real Hikari pool and connection gate, each request
+// also waiting on a simulated remote call outside its transaction. On Tomcat's 200 platform threads at most 200 of
+// them are in flight; on virtual threads all of them are, the 20 pooled connections are shared through the gate, and
+// no request fails. Platform threads cannot finish faster than CLIENTS x REQUESTS_PER_CLIENT x REMOTE_CALL_MILLIS /
+// 200; virtual threads overlap every wait. Prints the throughput of both.
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:gate-load;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "db.connection-gate.timeout=PT30S",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        // printing every statement to stdout would serialize the clients on the console
+        "spring.jpa.show-sql=false",
+        "app.scheduling.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConnectionGateLoadTest {
+
+    private static final int CLIENTS = 1000;
+    private static final int REQUESTS_PER_CLIENT = 2;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int POOL_SIZE = 20;
+    // long enough for the requests to be bound by waiting rather than by the CPU time H2 spends on the queries
+    private static final long REMOTE_CALL_MILLIS = 250;
+
+    private record Run(double seconds, int peakInFlight, int peakWaiting) {
+        double throughput() {
+            return CLIENTS * REQUESTS_PER_CLIENT / seconds;
+        }
+    }
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    private Long patientId;
+
+    @BeforeEach
+    void setUp() {
+        when(tokenService.extractRole("token")).thenReturn("doctor");
+        Patient patient = patientRepository.save(new Patient("Load Patient", "load@example.com", "secret",
+                "555-555-5555", "1 Main Street", LocalDate.of(1990, 1, 1), Patient.Gender.OTHER));
+        patientId = patient.getId();
+        Doctor doctor = doctorRepository.save(new Doctor("Load Doctor", "Cardiologist", "load@example.com", "secret",
+                "555-555-5555"));
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withMinute(0).withSecond(0).withNano(0);
+        for (int i = 0; i < 20; i++) {
+            appointmentRepository.save(new Appointment(doctor, patient, start.plusHours(i), Appointment.AppointmentStatus.SCHEDULED));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        appointmentRepository.deleteAll();
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void thousandClientsShareThePoolThroughTheGate() throws Exception {
+        ConnectionGate gate = assertInstanceOf(ConnectionGate.class, dataSource);
+
+        // warms up the JIT and the pool so that neither run pays for it
+        run(Executors.newVirtualThreadPerTaskExecutor(), gate);
+        Run platform = run(Executors.newFixedThreadPool(PLATFORM_THREADS), gate);
+        Run virtual = run(Executors.newVirtualThreadPerTaskExecutor(), gate);
+
+        System.out.printf("Connection gate load, %d clients x %d requests, %d connections:%n"
+                        + "  %d platform threads: %.3f s (%.0f requests/s), %d in flight, up to %d waiting at the gate%n"
+                        + "  virtual threads:     %.3f s (%.0f requests/s), %d in flight, up to %d waiting at the gate%n",
+                CLIENTS, REQUESTS_PER_CLIENT, POOL_SIZE,
+                PLATFORM_THREADS, platform.seconds(), platform.throughput(), platform.peakInFlight(), platform.peakWaiting(),
+                virtual.seconds(), virtual.throughput(), virtual.peakInFlight(), virtual.peakWaiting());
+
+        assertTrue(platform.peakInFlight() <= PLATFORM_THREADS);
+        assertTrue(virtual.peakInFlight() > PLATFORM_THREADS, "virtual threads only reached " + virtual.peakInFlight());
+        assertTrue(virtual.seconds() < platform.seconds(), "virtual threads were not faster");
+        assertEquals(POOL_SIZE, gate.getAvailable());
+    }
+
+    // Starts every client at once and waits for all of them; any failed request fails the test
+    private Run run(ExecutorService executor, ConnectionGate gate) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        AtomicInteger peakWaiting = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> clients = new ArrayList<>();
+        try {
+            for (int c = 0; c < CLIENTS; c++) {
+                clients.add(executor.submit(() -> {
+                    start.await();
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        try {
+                            HttpStatus status = (HttpStatus) patientService
+                                    .getPatientAppointment(patientId, "token", null, 10).getStatusCode();
+                            assertEquals(HttpStatus.OK, status);
+                            peakWaiting.accumulateAndGet(gate.getWaiting(), Math::max);
+                            // e.g. the prescriptions or another service, called without holding a connection
+                            Thread.sleep(REMOTE_CALL_MILLIS);
+                        } finally {
+                            inFlight.decrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> client : clients) {
+                client.get(120, TimeUnit.SECONDS);
+            }
+            return new Run((System.nanoTime() - started) / 1e9, peakInFlight.get(), peakWaiting.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.project.back_end.services;
+
+import com.project.back_end.controllers.DoctorController;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// GET /doctor answers 304 with no body when If-None-Match carries the current ETag, and the ETag changes once a
+// doctor is saved or deleted, so clients holding the old one download the new list.
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.scheduling.enabled=false",
+        "doctor.purge.pause=PT0S"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DoctorDirectoryTest {
+
+    @Autowired
+    private DoctorController doctorController;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Value("${api.path}")
+    private String apiPath;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(doctorController)
+                .addPlaceholderValue("api.path", apiPath)
+                .build();
+        when(tokenService.validateToken("token", "admin")).thenReturn(true);
+        when(passwordService.encode(anyString())).thenReturn(CompletableFuture.completedFuture("$2a$10$hash"));
+        doctorRepository.save(new Doctor("Listed Doctor", "Cardiologist", "listed@example.com", "secret",
+                "555-555-5555"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        doctorRepository.deleteAll();
+    }
+
+    @Test
+    void answersNotModifiedToTheCurrentEtag() throws Exception {
+        MockHttpServletResponse first = getDoctors(null);
+        assertEquals(HttpStatus.OK.value(), first.getStatus());
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        assertTrue(first.getContentAsString().contains("Listed Doctor"));
+
+        MockHttpServletResponse revalidated = getDoctors(etag);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), revalidated.getStatus());
+        assertEquals(0, revalidated.getContentAsByteArray().length);
+        assertEquals(etag, revalidated.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void savingOrDeletingADoctorChangesTheEtag() throws Exception {
+        String initial = getDoctors(null).getHeader(HttpHeaders.ETAG);
+
+        assertEquals(HttpStatus.CREATED, doctorController.saveDoctor(new Doctor("New Doctor", "Dermatologist",
+                "new@example.com", "secret1", "555-555-5555"), "token").getStatusCode());
+        MockHttpServletResponse afterSave = getDoctors(initial);
+        assertEquals(HttpStatus.OK.value(), afterSave.getStatus());
+        assertTrue(afterSave.getContentAsString().contains("New Doctor"));
+        String saved = afterSave.getHeader(HttpHeaders.ETAG);
+        assertNotEquals(initial, saved);
+
+        Long newDoctorId = doctorRepository.findByEmail("new@example.com").getId();
+        assertEquals(HttpStatus.ACCEPTED, doctorController.deleteDoctor(newDoctorId, "token").getStatusCode());
+        MockHttpServletResponse afterDelete = getDoctors(saved);
+        assertEquals(HttpStatus.OK.value(), afterDelete.getStatus());
+        assertFalse(afterDelete.getContentAsString().contains("New Doctor"));
+        assertNotEquals(saved, afterDelete.getHeader(HttpHeaders.ETAG));
+        awaitPurge(newDoctorId);
+    }
+
+    private MockHttpServletResponse getDoctors(String ifNoneMatch) throws Exception {
+        var request = get(apiPath + "doctor");
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return mockMvc.perform(request).andReturn().getResponse();
+    }
+
+    // Lets the background purge of a deleted doctor finish before the tables are cleaned up
+    private void awaitPurge(Long doctorId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            Map<String, Object> progress = doctorService.getPurgeProgress(doctorId);
+            if (progress != null && (progress.get("state") == DoctorPurger.State.DONE
+                    || progress.get("state") == DoctorPurger.State.FAILED)) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// AM/PM filtering of 10k doctors, re-splitting the availableTimes strings on every call (the previous behaviour)
+// versus the parsed SlotSchedule. Run with the GC profiler to compare gc.alloc.rate.norm (bytes per call).
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.project.back_end.services.DoctorFilterBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DoctorFilterBenchmark {
+
+    private static final int DOCTORS = 10_000;
+
+    private List<Doctor> doctors;
+
+    @Setup
+    public void setUp() {
+        doctors = new ArrayList<>(DOCTORS);
+        for (int i = 0; i < DOCTORS; i++) {
+            Doctor doctor = new Doctor("Doctor " + i, "Cardiologist", "doctor" + i + "@example.com", "secret", "555-555-5555");
+            List<String> slots = new ArrayList<>();
+            int firstHour = 8 + i % 6;
+            for (int hour = firstHour; hour < firstHour + 4; hour++) {
+                slots.add(String.format("%02d:00-%02d:00", hour, hour + 1));
+            }
+            doctor.setAvailableTimes(slots);
+            doctors.add(doctor);
+        }
+        doctors.forEach(Doctor::getSlotSchedule);
+    }
+
+    @Benchmark
+    public int splitStringsPerCall() {
+        int matches = 0;
+        for (Doctor doctor : doctors) {
+            for (String slot : doctor.getAvailableTimes()) {
+                int hour = Integer.parseInt(slot.split("-")[0].trim().split(":")[0]);
+                if (hour >= 12) {
+                    matches++;
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int parsedSlotSchedule() {
+        int matches = 0;
+        for (Doctor doctor : doctors) {
+            if (doctor.getSlotSchedule().hasPeriod("PM")) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DoctorFilterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
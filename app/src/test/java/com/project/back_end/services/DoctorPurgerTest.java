@@ -0,0 +1,216 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Appointment.AppointmentStatus;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+// Deleting a doctor hides them at once, while their appointments stay listed without the doctor's name; then the
+// background purge removes their appointments (hot and archived) chunk by chunk and finally the doctor row, leaving
+// other doctors' appointments alone. A purge that fails is queued again by deleting the doctor once more, and a soft
+// delete the database rejects returns the error code.
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.scheduling.enabled=false",
+        "doctor.purge.chunk-size=10",
+        "doctor.purge.pause=PT0S",
+        // the archived appointments are in the past, which @Future rejects on persist
+        "spring.jpa.properties.jakarta.persistence.validation.mode=none"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DoctorPurgerTest {
+
+    private static final int UPCOMING = 35;
+    private static final int ARCHIVED = 5;
+    private static final int OTHER = 3;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private AppointmentArchiver archiver;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private ArchivedAppointmentRepository archivedAppointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    private Long doctorId;
+    private Long patientId;
+
+    @BeforeEach
+    void setUp() {
+        Patient patient = patientRepository.save(new Patient("Purge Patient", "purge@example.com", "secret",
+                "555-555-5555", "1 Main Street", LocalDate.of(1990, 1, 1), Patient.Gender.OTHER));
+        patientId = patient.getId();
+        Doctor doctor = doctorRepository.save(new Doctor("Leaving Doctor", "Cardiologist", "leaving@example.com",
+                "secret", "555-555-5555"));
+        doctorId = doctor.getId();
+        Doctor other = doctorRepository.save(new Doctor("Staying Doctor", "Cardiologist", "staying@example.com",
+                "secret", "555-555-5555"));
+        LocalDateTime now = LocalDateTime.now().withMinute(0).withSecond(0).withNano(0);
+        for (int i = 0; i < ARCHIVED; i++) {
+            appointmentRepository.save(new Appointment(doctor, patient, now.minusYears(2).plusHours(i), AppointmentStatus.COMPLETED));
+        }
+        archiver.archive(now);
+        for (int i = 1; i <= UPCOMING; i++) {
+            appointmentRepository.save(new Appointment(doctor, patient, now.plusHours(i), AppointmentStatus.SCHEDULED));
+        }
+        for (int i = 1; i <= OTHER; i++) {
+            appointmentRepository.save(new Appointment(other, patient, now.plusHours(i), AppointmentStatus.SCHEDULED));
+        }
+        when(tokenService.extractRole("token")).thenReturn("doctor");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS purge_blocker");
+        jdbcTemplate.execute("ALTER TABLE doctor DROP CONSTRAINT IF EXISTS doctor_not_deleted");
+        archivedAppointmentRepository.deleteAllInBatch();
+        appointmentRepository.deleteAll();
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+        archiver.archive(LocalDateTime.now());
+    }
+
+    @Test
+    void deletedDoctorIsHiddenAtOnceAndPurgedInTheBackground() throws InterruptedException {
+        assertEquals(ARCHIVED, archivedAppointmentRepository.count());
+
+        assertEquals(1, doctorService.deleteDoctor(doctorId));
+        assertTrue(doctorRepository.findById(doctorId).isEmpty());
+        assertEquals(-1, doctorService.deleteDoctor(doctorId));
+
+        Map<String, Object> progress = awaitPurge();
+        assertEquals(DoctorPurger.State.DONE, progress.get("state"));
+        assertEquals((long) (UPCOMING + ARCHIVED), progress.get("deletedAppointments"));
+
+        assertEquals(OTHER, appointmentRepository.count());
+        assertEquals(0, archivedAppointmentRepository.count());
+        assertTrue(doctorRepository.findSoftDeletedIds().isEmpty());
+        List<AppointmentDTO> remaining = appointments(patientService.getPatientAppointment(patientId, "token", null, 100).getBody());
+        assertEquals(OTHER, remaining.size());
+        assertTrue(remaining.stream().allMatch(appointment -> appointment.getDoctorName().equals("Staying Doctor")));
+    }
+
+    @Test
+    void appointmentsStayListedUntilThePurge() throws InterruptedException {
+        // the purge starts once the delete commits, so the listing in the same transaction runs before it
+        List<AppointmentDTO> listed = transactionTemplate.execute(status -> {
+            assertEquals(1, doctorService.deleteDoctor(doctorId));
+            return appointments(patientService.getPatientAppointment(patientId, "token", null, 100).getBody());
+        });
+
+        assertEquals(UPCOMING + ARCHIVED + OTHER, listed.size());
+        List<AppointmentDTO> leaving = listed.stream()
+                .filter(appointment -> appointment.getDoctorId().equals(doctorId))
+                .toList();
+        assertEquals(UPCOMING + ARCHIVED, leaving.size());
+        assertTrue(leaving.stream().allMatch(appointment -> appointment.getDoctorName() == null));
+        assertEquals(DoctorPurger.State.DONE, awaitPurge().get("state"));
+    }
+
+    @Test
+    void failedPurgeIsRetriedByDeletingAgain() throws InterruptedException {
+        // a row still referencing the doctor makes the last step of the purge fail
+        jdbcTemplate.execute("CREATE TABLE purge_blocker (doctor_id BIGINT REFERENCES doctor(id))");
+        jdbcTemplate.update("INSERT INTO purge_blocker (doctor_id) VALUES (?)", doctorId);
+
+        assertEquals(1, doctorService.deleteDoctor(doctorId));
+        Map<String, Object> failed = awaitPurge();
+        assertEquals(DoctorPurger.State.FAILED, failed.get("state"));
+        assertEquals(List.of(doctorId), doctorRepository.findSoftDeletedIds());
+        assertEquals(OTHER, appointmentRepository.count());
+
+        jdbcTemplate.update("DELETE FROM purge_blocker");
+        assertEquals(1, doctorService.deleteDoctor(doctorId));
+        Map<String, Object> retried = awaitPurge();
+        assertEquals(DoctorPurger.State.DONE, retried.get("state"));
+        assertTrue(doctorRepository.findSoftDeletedIds().isEmpty());
+        assertEquals(-1, doctorService.deleteDoctor(doctorId));
+    }
+
+    @Test
+    void failedSoftDeleteReturnsTheErrorCode() {
+        // the soft delete is rejected by the database, which marks the transaction rollback-only
+        jdbcTemplate.execute("ALTER TABLE doctor ADD CONSTRAINT doctor_not_deleted CHECK (is_deleted = FALSE)");
+
+        assertEquals(0, doctorService.deleteDoctor(doctorId));
+        assertTrue(doctorRepository.findById(doctorId).isPresent());
+        assertNull(doctorService.getPurgeProgress(doctorId));
+    }
+
+    private Map<String, Object> awaitPurge() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            Map<String, Object> progress = doctorService.getPurgeProgress(doctorId);
+            Object state = progress == null ? null : progress.get("state");
+            if (state == DoctorPurger.State.DONE || state == DoctorPurger.State.FAILED
+                    || System.currentTimeMillis() > deadline) {
+                return progress;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AppointmentDTO> appointments(Map<String, Object> body) {
+        return (List<AppointmentDTO>) body.get("appointments");
+    }
+}
@@ -0,0 +1,113 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.repo.PrescriptionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Counts the SQL statements behind each doctor endpoint on an in-memory database, so that an N+1 regression
+// (one query per doctor for availableTimes or appointments) fails the build instead of showing up in production.
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.scheduling.enabled=false"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({DoctorService.class, DoctorSearchIndex.class, DoctorDirectory.class, AppointmentSlotIndex.class})
+class DoctorQueryCountTest {
+
+    private static final int DOCTORS = 25;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    private Statistics statistics;
+    private Long firstDoctorId;
+
+    @BeforeEach
+    void setUp() {
+        Patient patient = new Patient("Test Patient", "patient@example.com", "secret", "555-555-5555",
+                "1 Main Street", LocalDate.of(1990, 1, 1), Patient.Gender.OTHER);
+        entityManager.persist(patient);
+        for (int i = 0; i < DOCTORS; i++) {
+            Doctor doctor = new Doctor("Doctor " + i, i % 2 == 0 ? "Cardiologist" : "Dermatologist",
+                    "doctor" + i + "@example.com", "secret", "555-555-5555");
+            doctor.setAvailableTimes(List.of("09:00-10:00", "14:00-15:00"));
+            entityManager.persist(doctor);
+            entityManager.persist(new Appointment(doctor, patient, LocalDateTime.now().plusDays(1).withHour(9).withMinute(0),
+                    Appointment.AppointmentStatus.SCHEDULED));
+            if (firstDoctorId == null) {
+                firstDoctorId = doctor.getId();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void doctorDirectoryIsBuiltWithOneQueryAndThenServedFromTheSnapshot() {
+        doctorService.getDoctorDirectory();
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        doctorService.getDoctorDirectory();
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void filterLoadsOnlyTheRequestedPageOfCards() {
+        // first call builds the search index (one query), then one query loads the page of cards
+        Map<String, Object> response = doctorService.filterDoctors(null, "cardiologist", "AM", 0, 5);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals((DOCTORS + 1) / 2, response.get("total"));
+        assertEquals(5, ((List<?>) response.get("doctors")).size());
+
+        statistics.clear();
+        doctorService.filterDoctors("doctor 1", null, null, 0, 20);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void availabilityLoadsTheDoctorAndTheBookedSlots() {
+        List<String> available = doctorService.getDoctorAvailability(firstDoctorId, LocalDate.now().plusDays(1));
+        assertEquals(List.of("14:00-15:00"), available);
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
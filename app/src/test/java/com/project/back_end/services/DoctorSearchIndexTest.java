@@ -0,0 +1,93 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.DoctorRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Name searches match anywhere in the name whatever the query length, ignoring case and accents; specialty and
+// AM/PM filters combine with the name; saved and deleted doctors show up in the index only once their
+// transaction commits.
+class DoctorSearchIndexTest {
+
+    private DoctorRepository doctorRepository;
+    private DoctorSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        doctorRepository = mock(DoctorRepository.class);
+        when(doctorRepository.findAllWithAvailableTimes()).thenReturn(List.of(
+                doctor(1L, "John Smith", "Cardiologist", "09:00-10:00"),
+                doctor(2L, "Joëlle Durand", "Dermatologist", "14:00-15:00"),
+                doctor(3L, "Al", "Cardiologist", "09:00-10:00", "15:00-16:00"),
+                doctor(4L, "Maria  JOHANSSON", "cardiologist", "16:00-17:00")));
+        index = new DoctorSearchIndex(doctorRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shortQueriesMatchAnywhereInTheName() {
+        assertEquals(List.of(1L, 2L, 4L), index.search("jo", null, null));
+        assertEquals(List.of(2L, 3L, 4L), index.search("a", null, null));
+        assertEquals(List.of(3L), index.search("Al", null, null));
+        assertEquals(List.of(), index.search("xq", null, null));
+        verify(doctorRepository, times(1)).findAllWithAvailableTimes();
+    }
+
+    @Test
+    void ignoresCaseAccentsAndExtraSpaces() {
+        assertEquals(List.of(2L), index.search("JOELLE", null, null));
+        assertEquals(List.of(2L), index.search("joëlle d", null, null));
+        assertEquals(List.of(4L), index.search("maria johan", null, null));
+        assertEquals(List.of(1L, 4L), index.search("joh", null, null));
+        assertEquals(List.of(), index.search("johnny", null, null));
+    }
+
+    @Test
+    void combinesSpecialtyWithAmOrPm() {
+        assertEquals(List.of(1L, 3L, 4L), index.search(null, "Cardiologist", null));
+        assertEquals(List.of(1L, 3L), index.search(null, "CARDIOLOGIST", "AM"));
+        assertEquals(List.of(3L, 4L), index.search(null, "cardiologist", "PM"));
+        assertEquals(List.of(4L), index.search("jo", "cardiologist", "PM"));
+        assertEquals(List.of(), index.search(null, "Neurologist", null));
+    }
+
+    @Test
+    void appliesSavesAndDeletesAfterCommit() {
+        assertEquals(List.of(1L, 4L), index.search("joh", null, null));
+        TransactionSynchronizationManager.initSynchronization();
+
+        index.put(doctor(5L, "Johanna Berg", "Cardiologist", "10:00-11:00"));
+        index.remove(1L);
+        assertEquals(List.of(1L, 4L), index.search("joh", null, null));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertEquals(List.of(4L, 5L), index.search("joh", null, null));
+        assertEquals(List.of(3L, 5L), index.search(null, "cardiologist", "AM"));
+    }
+
+    private static Doctor doctor(Long id, String name, String specialty, String... availableTimes) {
+        Doctor doctor = new Doctor(name, specialty, "doctor" + id + "@example.com", "secret", "555-555-5555");
+        doctor.setId(id);
+        doctor.setAvailableTimes(List.of(availableTimes));
+        return doctor;
+    }
+}
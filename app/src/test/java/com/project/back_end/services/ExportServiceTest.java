@@ -0,0 +1,196 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Appointment.AppointmentStatus;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.models.Prescription;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.ArchivedAppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+// Exports stream every appointment of both the archive and the appointment table, honour the date range, and write
+// well-formed NDJSON and CSV (quoted values, empty fields for nulls); appointment exports beyond max-concurrent are
+// refused until a running one ends.
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.scheduling.enabled=false",
+        "export.jdbc.fetch-size=10",
+        "export.max-concurrent=1",
+        // the archived appointments are in the past, which @Future rejects on persist
+        "spring.jpa.properties.jakarta.persistence.validation.mode=none"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExportServiceTest {
+
+    private static final int ARCHIVED = 15;
+    private static final int UPCOMING = 25;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private AppointmentArchiver archiver;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private ArchivedAppointmentRepository archivedAppointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    private final LocalDateTime now = LocalDateTime.now().withMinute(0).withSecond(0).withNano(0);
+
+    @BeforeEach
+    void setUp() {
+        Patient patient = patientRepository.save(new Patient("Export Patient", "export@example.com", "secret",
+                "555-555-5555", "1 Main Street, \"Unit 2\"", LocalDate.of(1990, 1, 1), Patient.Gender.OTHER));
+        Doctor doctor = doctorRepository.save(new Doctor("Export Doctor", "Cardiologist", "export@example.com",
+                "secret", "555-555-5555"));
+        for (int i = 0; i < ARCHIVED; i++) {
+            appointmentRepository.save(new Appointment(doctor, patient, now.minusYears(2).plusHours(i), AppointmentStatus.COMPLETED));
+        }
+        archiver.archive(now);
+        for (int i = 1; i <= UPCOMING; i++) {
+            appointmentRepository.save(new Appointment(doctor, patient, now.plusDays(1).plusMinutes(30L * i), AppointmentStatus.SCHEDULED));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        archivedAppointmentRepository.deleteAllInBatch();
+        appointmentRepository.deleteAll();
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+        archiver.archive(now);
+    }
+
+    @Test
+    void exportsArchivedAndCurrentAppointmentsAsNdjson() throws IOException {
+        assertEquals(ARCHIVED, archivedAppointmentRepository.count());
+
+        ResponseEntity<StreamingResponseBody> response = exportService.exportAppointments("ndjson", null, null);
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+        List<String> lines = write(response).lines().toList();
+
+        assertEquals(ARCHIVED + UPCOMING, lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals("Export Doctor", first.get("doctorName").asText());
+        assertEquals(now.minusYears(2), LocalDateTime.parse(first.get("appointmentTime").asText()));
+        assertEquals(ARCHIVED + UPCOMING, lines.stream().map(this::readId).distinct().count());
+    }
+
+    @Test
+    void exportsTheDateRangeAsCsv() throws IOException {
+        LocalDate tomorrow = now.toLocalDate().plusDays(1);
+        List<String> lines = List.of(write(exportService.exportAppointments("csv", tomorrow, tomorrow.plusDays(1))).split("\r\n"));
+
+        assertEquals("id,doctorId,doctorName,patientId,patientName,patientEmail,patientPhone,patientAddress," +
+                "appointmentTime,status", lines.get(0));
+        assertEquals(1 + UPCOMING, lines.size());
+        assertTrue(lines.get(1).contains(",\"1 Main Street, \"\"Unit 2\"\"\","), lines.get(1));
+    }
+
+    @Test
+    void exportsPrescriptionsFromTheCursor() throws IOException {
+        Prescription prescription = new Prescription("Export Patient", "Export Doctor", 7L, "Ibuprofen", "200mg", null);
+        prescription.setId("rx-7");
+        when(prescriptionRepository.streamAllBy()).thenReturn(Stream.of(prescription));
+
+        List<String> lines = List.of(write(exportService.exportPrescriptions("CSV")).split("\r\n"));
+        assertEquals(2, lines.size());
+        assertEquals("rx-7,7,Export Patient,Export Doctor,Ibuprofen,200mg,,0,", lines.get(1));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exportService.exportPrescriptions("xml").getStatusCode());
+    }
+
+    @Test
+    void refusesAppointmentExportsBeyondMaxConcurrent() throws IOException {
+        ResponseEntity<StreamingResponseBody> running = exportService.exportAppointments("ndjson", null, null);
+
+        ResponseEntity<StreamingResponseBody> refused = exportService.exportAppointments("csv", null, null);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, refused.getStatusCode());
+        assertEquals("30", refused.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        // prescriptions do not hold a database connection
+        when(prescriptionRepository.streamAllBy()).thenReturn(Stream.of());
+        assertEquals(HttpStatus.OK, exportService.exportPrescriptions("ndjson").getStatusCode());
+
+        // a client that goes away ends the export too
+        OutputStream closed = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        assertThrows(IOException.class, () -> running.getBody().writeTo(closed));
+        assertEquals(ARCHIVED + UPCOMING, write(exportService.exportAppointments("ndjson", null, null)).lines().count());
+        assertEquals(ARCHIVED + UPCOMING, write(exportService.exportAppointments("ndjson", null, null)).lines().count());
+    }
+
+    private long readId(String line) {
+        try {
+            return objectMapper.readTree(line).get("id").asLong();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String write(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+package com.project.back_end.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A matching login upgrades plaintext passwords and hashes weaker than the configured strength, and leaves
+// current hashes alone; once every hashing thread is busy and the queue is full, new work fails right away with
+// an error that isOverloaded() recognizes.
+class PasswordServiceTest {
+
+    private final PasswordService passwordService = new PasswordService(5, 1, 1);
+
+    @AfterEach
+    void tearDown() {
+        passwordService.shutdown();
+    }
+
+    @Test
+    void rehashesPlaintextAndWeakerHashesOnLogin() {
+        List<String> rehashed = new ArrayList<>();
+
+        assertTrue(passwordService.verify("secret1", "secret1", rehashed::add).join());
+        assertEquals(1, rehashed.size());
+        assertTrue(rehashed.get(0).startsWith("$2a$05$"), rehashed.get(0));
+
+        String weak = new BCryptPasswordEncoder(4).encode("secret1");
+        assertTrue(passwordService.verify("secret1", weak, rehashed::add).join());
+        assertEquals(2, rehashed.size());
+        assertTrue(new BCryptPasswordEncoder().matches("secret1", rehashed.get(1)));
+
+        // a current hash and a wrong password are not rehashed
+        String current = passwordService.encode("secret1").join();
+        assertTrue(passwordService.verify("secret1", current, rehashed::add).join());
+        assertFalse(passwordService.verify("wrong", "secret1", rehashed::add).join());
+        assertEquals(2, rehashed.size());
+    }
+
+    @Test
+    void rejectsWorkWhenSaturated() {
+        CountDownLatch release = new CountDownLatch(1);
+        // the rehash callback runs on the only hashing thread and holds it
+        CompletableFuture<Boolean> busy = passwordService.verify("secret1", "secret1", hash -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            // the first task went straight to the thread, this one waits in the queue
+            CompletableFuture<String> queued = passwordService.encode("secret2");
+            CompletableFuture<String> rejected = passwordService.encode("secret3");
+
+            CompletionException error = assertThrows(CompletionException.class, rejected::join);
+            assertTrue(PasswordService.isOverloaded(error));
+            assertFalse(PasswordService.isOverloaded(new CompletionException(new IllegalStateException())));
+
+            release.countDown();
+            assertTrue(busy.join());
+            assertTrue(PasswordService.isHashed(queued.join()));
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Appointment.AppointmentStatus;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.models.Prescription;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The patient record reads the appointments and the prescriptions at the same time, joins each appointment with its
+// prescription summary, and still answers with the appointments (flagged partial) when MongoDB does not answer within
+// its timeout. Prescriptions saved before they carried a patient id get it from their appointment.
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.scheduling.enabled=false",
+        "patient.record.mongo-timeout=PT0.2S"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PatientRecordServiceTest {
+
+    @Autowired
+    private PatientRecordService patientRecordService;
+
+    @Autowired
+    private PrescriptionService prescriptionService;
+
+    @Autowired
+    private PrescriptionCache cache;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    private Patient patient;
+    private final List<Long> appointmentIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        cache.clear();
+        prescriptionService.backfillPatientIds();
+        when(tokenService.extractRole("token")).thenReturn("doctor");
+        patient = patientRepository.save(new Patient("Record Patient", "record@example.com", "secret",
+                "555-555-5555", "1 Main Street", LocalDate.of(1990, 1, 1), Patient.Gender.OTHER));
+        Doctor doctor = doctorRepository.save(new Doctor("Record Doctor", "Cardiologist", "record@example.com",
+                "secret", "555-555-5555"));
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withMinute(0).withSecond(0).withNano(0);
+        for (int i = 0; i < 3; i++) {
+            appointmentIds.add(appointmentRepository.save(
+                    new Appointment(doctor, patient, start.plusHours(i), AppointmentStatus.SCHEDULED)).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        appointmentRepository.deleteAll();
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void joinsAppointmentsWithTheirPrescriptions() {
+        Prescription projected = new Prescription();
+        projected.setId("rx-1");
+        projected.setAppointmentId(appointmentIds.get(1));
+        projected.setMedication("Ibuprofen");
+        projected.setDosage("200mg");
+        when(prescriptionRepository.findSummariesByPatientId(patient.getId())).thenReturn(List.of(projected));
+
+        Map<String, Object> body = record();
+
+        assertEquals(false, body.get("partial"));
+        List<Map<String, Object>> records = records(body);
+        assertEquals(appointmentIds, records.stream().map(entry -> ((AppointmentDTO) entry.get("appointment")).getId()).toList());
+        assertNull(records.get(0).get("prescription"));
+        assertEquals("Ibuprofen", prescriptionOf(records.get(1)).get("medication"));
+    }
+
+    @Test
+    void returnsTheAppointmentsWhenMongoIsSlow() {
+        CountDownLatch release = new CountDownLatch(1);
+        when(prescriptionRepository.findSummariesByPatientId(patient.getId())).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+        try {
+            long start = System.nanoTime();
+            Map<String, Object> body = record();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(true, body.get("partial"));
+            assertEquals(3, records(body).size());
+            records(body).forEach(entry -> assertNull(entry.get("prescription")));
+            assertTrue(elapsedMillis < 5000, "took " + elapsedMillis + " ms");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void readsBothStoresAtTheSameTime() {
+        CountDownLatch mysqlStarted = new CountDownLatch(1);
+        CountDownLatch mongoStarted = new CountDownLatch(1);
+        AtomicBoolean mysqlSawMongo = new AtomicBoolean();
+        AtomicBoolean mongoSawMysql = new AtomicBoolean();
+        // each lookup waits for the other one to start, which only happens if they run side by side
+        when(tokenService.extractRole("token")).thenAnswer(invocation -> {
+            mysqlStarted.countDown();
+            mysqlSawMongo.set(mongoStarted.await(1, TimeUnit.SECONDS));
+            return "doctor";
+        });
+        when(prescriptionRepository.findSummariesByPatientId(patient.getId())).thenAnswer(invocation -> {
+            mongoStarted.countDown();
+            mongoSawMysql.set(mysqlStarted.await(1, TimeUnit.SECONDS));
+            return List.of();
+        });
+
+        assertEquals(false, record().get("partial"));
+        assertTrue(mysqlSawMongo.get(), "the appointments were read before the prescriptions lookup started");
+        assertTrue(mongoSawMysql.get(), "the prescriptions were read before the appointments lookup started");
+        verify(prescriptionRepository, never()).findSummariesByAppointmentIdIn(anyCollection());
+    }
+
+    @Test
+    void savesAndBackfillsThePatientIdOfPrescriptions() {
+        when(prescriptionRepository.save(any(Prescription.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        prescriptionService.savePrescription(new Prescription("Record Patient", "Record Doctor", appointmentIds.get(0),
+                "Ibuprofen", "200mg", null));
+        ArgumentCaptor<Prescription> saved = ArgumentCaptor.forClass(Prescription.class);
+        verify(prescriptionRepository).save(saved.capture());
+        assertEquals(patient.getId(), saved.getValue().getPatientId());
+
+        Prescription older = new Prescription();
+        older.setAppointmentId(appointmentIds.get(1));
+        Prescription orphan = new Prescription();
+        orphan.setAppointmentId(-1L);
+        when(prescriptionRepository.findWithoutPatientId(any(Limit.class)))
+                .thenReturn(List.of(older, orphan))
+                .thenReturn(List.of());
+        when(prescriptionRepository.updatePatientIdByAppointmentIdIn(anyCollection(), any())).thenReturn(1L);
+
+        prescriptionService.backfillPatientIds();
+
+        verify(prescriptionRepository).updatePatientIdByAppointmentIdIn(List.of(appointmentIds.get(1)), patient.getId());
+        verify(prescriptionRepository).updatePatientIdByAppointmentIdIn(List.of(-1L), null);
+        assertTrue(prescriptionService.isPatientIdComplete());
+    }
+
+    @Test
+    void passesErrorsOfTheAppointmentLookupThrough() {
+        ResponseEntity<Map<String, Object>> response =
+                patientRecordService.getPatientRecord(patient.getId(), "token", "not a cursor", 20).join();
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    private Map<String, Object> record() {
+        ResponseEntity<Map<String, Object>> response =
+                patientRecordService.getPatientRecord(patient.getId(), "token", null, 20).join();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return response.getBody();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> records(Map<String, Object> body) {
+        return (List<Map<String, Object>>) body.get("records");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> prescriptionOf(Map<String, Object> record) {
+        return (Map<String, Object>) record.get("prescription");
+    }
+}
@@ -0,0 +1,128 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Prescription;
+import com.project.back_end.repo.PrescriptionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Prescriptions are read from MongoDB once and then served from the cache, saved prescriptions are cached right
+// away, and the cache stays within its byte budget by evicting the least recently used prescriptions.
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.scheduling.enabled=false",
+        "prescription.cache.max-bytes=2000"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class PrescriptionCacheTest {
+
+    @Autowired
+    private PrescriptionService prescriptionService;
+
+    @Autowired
+    private PrescriptionCache cache;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @BeforeEach
+    void setUp() {
+        cache.clear();
+        when(prescriptionRepository.save(any(Prescription.class))).thenAnswer(invocation -> {
+            Prescription prescription = invocation.getArgument(0);
+            prescription.setId("rx-" + prescription.getAppointmentId());
+            return prescription;
+        });
+    }
+
+    @Test
+    void readsThroughAndCachesSavedPrescriptions() {
+        when(prescriptionRepository.findByAppointmentId(1L)).thenReturn(List.of(prescription(1L)));
+        long hits = cache.getHitCount();
+
+        assertEquals(HttpStatus.OK, prescriptionService.getPrescription(1L).getStatusCode());
+        Map<String, Object> second = prescriptionService.getPrescription(1L).getBody();
+        assertEquals("rx-1", ((Prescription) second.get("prescription")).getId());
+        verify(prescriptionRepository, times(1)).findByAppointmentId(1L);
+        assertEquals(hits + 1, cache.getHitCount());
+
+        assertEquals(HttpStatus.CREATED, prescriptionService.savePrescription(prescription(2L)).getStatusCode());
+        assertEquals(HttpStatus.OK, prescriptionService.getPrescription(2L).getStatusCode());
+        verify(prescriptionRepository, never()).findByAppointmentId(2L);
+
+        // appointments without a prescription are not cached
+        assertEquals(HttpStatus.NOT_FOUND, prescriptionService.getPrescription(3L).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, prescriptionService.getPrescription(3L).getStatusCode());
+        verify(prescriptionRepository, times(2)).findByAppointmentId(3L);
+    }
+
+    @Test
+    void bulkLookupOnlyQueriesUncachedAppointments() {
+        prescriptionService.savePrescription(prescription(1L));
+        Prescription projected = new Prescription();
+        projected.setId("rx-2");
+        projected.setAppointmentId(2L);
+        projected.setMedication("Ibuprofen");
+        when(prescriptionRepository.findSummariesByAppointmentIdIn(List.of(2L, 3L))).thenReturn(List.of(projected));
+
+        @SuppressWarnings("unchecked")
+        Map<Long, Map<String, Object>> prescriptions = (Map<Long, Map<String, Object>>)
+                prescriptionService.getPrescriptions(List.of(1L, 2L, 3L)).getBody().get("prescriptions");
+
+        assertEquals(List.of(1L, 2L), List.copyOf(prescriptions.keySet()));
+        assertEquals("rx-1", prescriptions.get(1L).get("id"));
+        assertEquals("rx-2", prescriptions.get(2L).get("id"));
+        // the projection is not cached
+        assertNull(cache.get(2L));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedPrescriptionsBeyondTheByteBudget() {
+        for (long id = 1; id <= 20; id++) {
+            cache.put(prescription(id));
+            // keeps the first prescription recently used
+            assertNotNull(cache.get(1L));
+        }
+        assertTrue(cache.getBytes() <= 2000, "cached " + cache.getBytes() + " bytes");
+        assertTrue(cache.size() < 20);
+        assertNotNull(cache.get(1L));
+        assertNotNull(cache.get(20L));
+        assertNull(cache.get(2L));
+
+        cache.invalidate(20L);
+        assertNull(cache.get(20L));
+    }
+
+    private static Prescription prescription(Long appointmentId) {
+        Prescription prescription = new Prescription("Cached Patient", "Cached Doctor", appointmentId,
+                "Ibuprofen", "200mg twice a day", "Take after meals");
+        prescription.setId("rx-" + appointmentId);
+        return prescription;
+    }
+}
@@ -0,0 +1,249 @@
+package com.project.back_end.services;
+
+import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.models.Appointment;
+import com.project.back_end.models.Appointment.AppointmentStatus;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.Patient;
+import com.project.back_end.models.Prescription;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.repo.PrescriptionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+// A doctor's dashboard receives the changes of the day it watches, in order, and nothing from other days;
+// a client that stops reading holds at most buffer-size events and is told to resync once it reads again;
+// clients whose writes never return do not hold up the others and are dropped after send-timeout.
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.scheduling.enabled=false",
+        "schedule.events.buffer-size=4",
+        "schedule.events.heartbeat=PT1H",
+        "schedule.events.send-timeout=PT1S"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ScheduleEventsTest {
+
+    private static final Pattern EVENT_NAME = Pattern.compile("event:(\\S+)");
+
+    private record Received(String name, Object data) {
+    }
+
+    // Records the named events sent to it; sends block until the gate opens
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<Received> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch gate;
+
+        private RecordingEmitter(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            String name = null;
+            Object data = null;
+            for (var part : builder.build()) {
+                if (part.getData() instanceof String text) {
+                    Matcher matcher = EVENT_NAME.matcher(text);
+                    if (matcher.find()) {
+                        name = matcher.group(1);
+                    }
+                } else {
+                    data = part.getData();
+                }
+            }
+            received.add(new Received(name, data));
+        }
+
+        private List<Received> await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (received.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return received;
+        }
+    }
+
+    @Autowired
+    private ScheduleEvents events;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private PrescriptionService prescriptionService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private PasswordService passwordService;
+
+    @MockitoBean
+    private PrescriptionRepository prescriptionRepository;
+
+    private final CountDownLatch open = new CountDownLatch(0);
+    private final LocalDate day = LocalDate.now().plusDays(1);
+    private Doctor doctor;
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        patient = patientRepository.save(new Patient("Event Patient", "events@example.com", "secret",
+                "555-555-5555", "1 Main Street", LocalDate.of(1990, 1, 1), Patient.Gender.OTHER));
+        doctor = doctorRepository.save(new Doctor("Event Doctor", "Cardiologist", "events@example.com",
+                "secret", "555-555-5555"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        appointmentRepository.deleteAll();
+        doctorRepository.deleteAll();
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void dashboardReceivesTheChangesOfItsDay() throws InterruptedException {
+        RecordingEmitter dashboard = new RecordingEmitter(open);
+        RecordingEmitter otherDay = new RecordingEmitter(open);
+        assertTrue(events.register(doctor.getId(), day, dashboard));
+        assertTrue(events.register(doctor.getId(), day.plusDays(1), otherDay));
+
+        Appointment appointment = new Appointment(doctor, patient, day.atTime(10, 0), AppointmentStatus.SCHEDULED);
+        assertEquals(1, appointmentService.bookAppointment(appointment));
+        appointmentService.changeStatus(appointment.getId(), AppointmentStatus.CANCELLED);
+        when(prescriptionRepository.save(any(Prescription.class))).thenAnswer(invocation -> {
+            Prescription prescription = invocation.getArgument(0);
+            prescription.setId("rx-1");
+            return prescription;
+        });
+        prescriptionService.savePrescription(new Prescription("Event Patient", "Event Doctor", appointment.getId(),
+                "Ibuprofen", "200mg", null));
+
+        List<Received> received = dashboard.await(3);
+        assertEquals(List.of("booked", "cancelled", "prescription-added"), received.stream().map(Received::name).toList());
+        AppointmentDTO booked = (AppointmentDTO) received.get(0).data();
+        assertEquals(appointment.getId(), booked.getId());
+        assertEquals("Event Patient", booked.getPatientName());
+        assertEquals(Map.of("appointmentId", appointment.getId()), received.get(1).data());
+        assertEquals(Map.of("appointmentId", appointment.getId(), "prescriptionId", "rx-1"), received.get(2).data());
+        assertTrue(otherDay.received.isEmpty());
+
+        dashboard.complete();
+        otherDay.complete();
+    }
+
+    @Test
+    void slowDashboardIsToldToResyncInsteadOfBufferingEverything() throws InterruptedException {
+        CountDownLatch stalled = new CountDownLatch(1);
+        RecordingEmitter dashboard = new RecordingEmitter(stalled);
+        assertTrue(events.register(doctor.getId(), day, dashboard));
+
+        int published = 20;
+        events.cancelled(doctor.getId(), day.atTime(9, 0), 1L);
+        assertTrue(dashboard.sending.await(5, TimeUnit.SECONDS));
+        // the first event is stuck in send; of the other 19, every fifth overflows the buffer of 4 and clears it
+        for (long id = 2; id <= published; id++) {
+            events.cancelled(doctor.getId(), day.atTime(9, 0), id);
+        }
+        Thread.sleep(200);
+        stalled.countDown();
+
+        List<Received> received = dashboard.await(6);
+        Thread.sleep(100);
+        assertEquals(List.of("cancelled", "resync", "cancelled", "cancelled", "cancelled", "cancelled"),
+                received.stream().map(Received::name).toList());
+        assertEquals(Map.of("appointmentId", 1L), received.get(0).data());
+        assertEquals(Map.of("appointmentId", 17L), received.get(2).data());
+        assertEquals(Map.of("appointmentId", (long) published), received.get(5).data());
+
+        dashboard.complete();
+    }
+
+    @Test
+    void stuckDashboardsDoNotHoldUpTheOthers() throws InterruptedException {
+        int before = events.subscriberCount();
+        CountDownLatch stuck = new CountDownLatch(1);
+        // more stuck clients than a small fixed sender pool would have had threads
+        List<RecordingEmitter> stuckDashboards = List.of(
+                new RecordingEmitter(stuck), new RecordingEmitter(stuck), new RecordingEmitter(stuck));
+        RecordingEmitter dashboard = new RecordingEmitter(open);
+        try {
+            stuckDashboards.forEach(emitter -> assertTrue(events.register(doctor.getId(), day, emitter)));
+            assertTrue(events.register(doctor.getId(), day, dashboard));
+
+            events.cancelled(doctor.getId(), day.atTime(9, 0), 1L);
+            for (RecordingEmitter emitter : stuckDashboards) {
+                assertTrue(emitter.sending.await(5, TimeUnit.SECONDS));
+            }
+            events.cancelled(doctor.getId(), day.atTime(9, 0), 2L);
+            assertEquals(List.of(Map.of("appointmentId", 1L), Map.of("appointmentId", 2L)),
+                    dashboard.await(2).stream().map(Received::data).toList());
+
+            // the stuck clients are dropped once their send outlasts send-timeout
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (events.subscriberCount() > before + 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(before + 1, events.subscriberCount());
+
+            stuck.countDown();
+            events.cancelled(doctor.getId(), day.atTime(9, 0), 3L);
+            assertEquals(3, dashboard.await(3).size());
+            Thread.sleep(100);
+            // the write that was stuck completes, nothing after it is sent
+            for (RecordingEmitter emitter : stuckDashboards) {
+                assertEquals(List.of(Map.of("appointmentId", 1L)), emitter.received.stream().map(Received::data).toList());
+            }
+        } finally {
+            stuck.countDown();
+            dashboard.complete();
+        }
+    }
+}
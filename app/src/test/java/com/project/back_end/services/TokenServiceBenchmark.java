@@ -0,0 +1,65 @@
+package com.project.back_end.services;
+
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Tokens verified per second on a single thread, deriving the key and parser per call (the previous behaviour)
+// versus the shared key and parser held by TokenService.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.project.back_end.services.TokenServiceBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TokenServiceBenchmark {
+
+    private static final String SECRET = "$!@#$^%$$$%####$DDCPN0234FCFDPD8670M";
+
+    private TokenService tokenService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        tokenService = new TokenService(null, null, null, new VerifiedTokenCache(new SimpleMeterRegistry(), 0, 0, System::currentTimeMillis), SECRET);
+        token = tokenService.generateToken("doctor@example.com", "doctor", 1L);
+    }
+
+    @Benchmark
+    public String keyAndParserPerCall() {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload()
+                .getSubject();
+    }
+
+    @Benchmark
+    public String sharedKeyAndParser() {
+        return tokenService.extractEmail(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TokenServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
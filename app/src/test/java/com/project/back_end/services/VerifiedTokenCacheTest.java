@@ -0,0 +1,94 @@
+package com.project.back_end.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Cached tokens expire at the earlier of the TTL and the token's own expiration, the cache keeps only the most
+// recently used max-entries tokens, invalidating a user drops their tokens and blocks a verification that was
+// already running from caching them again, and hits and misses are published as meters.
+class VerifiedTokenCacheTest {
+
+    private static final long TTL_SECONDS = 300;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private MeterRegistry registry;
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new VerifiedTokenCache(registry, 3, TTL_SECONDS, now::get);
+    }
+
+    @Test
+    void expiresAtTheTokenExpirationWhenItComesBeforeTheTtl() {
+        cache.put("short", "doctor", 1L, now.get() + 10_000, cache.version());
+        cache.put("long", "doctor", 2L, now.get() + 3_600_000, cache.version());
+        // already expired tokens are not cached
+        cache.put("expired", "doctor", 3L, now.get(), cache.version());
+        assertEquals(2, cache.size());
+
+        now.addAndGet(10_000);
+        assertNull(cache.get("short", "doctor"));
+        assertNotNull(cache.get("long", "doctor"));
+
+        now.addAndGet(TTL_SECONDS * 1000);
+        assertNull(cache.get("long", "doctor"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedToken() {
+        for (long id = 1; id <= 3; id++) {
+            cache.put("token-" + id, "doctor", id, now.get() + 60_000, cache.version());
+        }
+        assertNotNull(cache.get("token-1", "doctor"));
+
+        cache.put("token-4", "doctor", 4L, now.get() + 60_000, cache.version());
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get("token-2", "doctor"));
+        assertNotNull(cache.get("token-1", "doctor"));
+        assertNotNull(cache.get("token-4", "doctor"));
+    }
+
+    @Test
+    void invalidatesEveryTokenOfAUser() {
+        cache.put("first", "doctor", 1L, now.get() + 60_000, cache.version());
+        cache.put("second", "doctor", 1L, now.get() + 60_000, cache.version());
+        cache.put("patient", "patient", 1L, now.get() + 60_000, cache.version());
+        long versionBeforeDelete = cache.version();
+
+        cache.invalidate("doctor", 1L);
+
+        assertNull(cache.get("first", "doctor"));
+        assertNull(cache.get("second", "doctor"));
+        assertNotNull(cache.get("patient", "patient"));
+        // a verification that started before the invalidation does not cache its result
+        cache.put("first", "doctor", 1L, now.get() + 60_000, versionBeforeDelete);
+        assertNull(cache.get("first", "doctor"));
+        // wrong role is a miss
+        assertNull(cache.get("patient", "doctor"));
+    }
+
+    @Test
+    void publishesHitsAndMisses() {
+        cache.put("token", "doctor", 1L, now.get() + 60_000, cache.version());
+        cache.get("token", "doctor");
+        cache.get("token", "doctor");
+        cache.get("other", "doctor");
+
+        assertEquals(2, registry.get("jwt.cache.hits").functionCounter().count());
+        assertEquals(1, registry.get("jwt.cache.misses").functionCounter().count());
+        assertEquals(2.0 / 3, registry.get("jwt.cache.hit.ratio").gauge().value(), 1e-9);
+        assertEquals(1, registry.get("jwt.cache.entries").gauge().value());
+    }
+}